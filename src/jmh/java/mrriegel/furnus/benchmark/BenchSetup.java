@@ -0,0 +1,38 @@
+package mrriegel.furnus.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import mrriegel.furnus.init.ModConfig;
+import mrriegel.furnus.tile.TileFurnus;
+import mrriegel.furnus.tile.TilePulvus;
+import net.minecraft.init.Bootstrap;
+import net.minecraftforge.fml.common.registry.GameRegistry;
+
+public class BenchSetup {
+
+	private static boolean done = false;
+
+	public static synchronized void init() {
+		if (done)
+			return;
+		Bootstrap.register();
+		GameRegistry.registerTileEntity(TileFurnus.class, "furnus:furnus");
+		GameRegistry.registerTileEntity(TilePulvus.class, "furnus:pulvus");
+		try {
+			File dir = Files.createTempDirectory("furnus").toFile();
+			try {
+				ModConfig.refreshConfig(new File(dir, "furnus.cfg"));
+			} finally {
+				for (File f : dir.listFiles())
+					f.delete();
+				dir.delete();
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+		done = true;
+	}
+
+}
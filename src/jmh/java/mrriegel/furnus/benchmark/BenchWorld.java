@@ -0,0 +1,76 @@
+package mrriegel.furnus.benchmark;
+
+import java.util.Map;
+
+import com.google.common.collect.Maps;
+
+import net.minecraft.block.Block;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.init.Blocks;
+import net.minecraft.profiler.Profiler;
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.GameType;
+import net.minecraft.world.World;
+import net.minecraft.world.WorldProviderSurface;
+import net.minecraft.world.WorldSettings;
+import net.minecraft.world.WorldType;
+import net.minecraft.world.chunk.IChunkProvider;
+import net.minecraft.world.storage.WorldInfo;
+
+public class BenchWorld extends World {
+
+	private final Map<BlockPos, IBlockState> states = Maps.newHashMap();
+	private final Map<BlockPos, TileEntity> tiles = Maps.newHashMap();
+
+	public BenchWorld() {
+		super(null, new WorldInfo(new WorldSettings(0L, GameType.SURVIVAL, false, false, WorldType.DEFAULT), "bench"), new WorldProviderSurface(), new Profiler(), false);
+	}
+
+	public void place(BlockPos pos, IBlockState state, TileEntity tile) {
+		states.put(pos, state);
+		tiles.put(pos, tile);
+		tile.setWorld(this);
+		tile.setPos(pos);
+	}
+
+	public void tick() {
+		worldInfo.setWorldTotalTime(worldInfo.getWorldTotalTime() + 1);
+	}
+
+	@Override
+	protected IChunkProvider createChunkProvider() {
+		return null;
+	}
+
+	@Override
+	protected boolean isChunkLoaded(int x, int z, boolean allowEmpty) {
+		return true;
+	}
+
+	@Override
+	public IBlockState getBlockState(BlockPos pos) {
+		IBlockState state = states.get(pos);
+		return state != null ? state : Blocks.AIR.getDefaultState();
+	}
+
+	@Override
+	public boolean setBlockState(BlockPos pos, IBlockState newState, int flags) {
+		states.put(pos, newState);
+		return true;
+	}
+
+	@Override
+	public TileEntity getTileEntity(BlockPos pos) {
+		return tiles.get(pos);
+	}
+
+	@Override
+	public void markChunkDirty(BlockPos pos, TileEntity unusedTileEntity) {
+	}
+
+	@Override
+	public void updateComparatorOutputLevel(BlockPos pos, Block blockIn) {
+	}
+
+}
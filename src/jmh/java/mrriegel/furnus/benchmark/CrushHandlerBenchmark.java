@@ -0,0 +1,75 @@
+package mrriegel.furnus.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.google.common.collect.Lists;
+
+import mrriegel.furnus.init.ModConfig;
+import mrriegel.furnus.util.CrushHandler;
+import mrriegel.furnus.util.CrushRecipe;
+import net.minecraft.init.Blocks;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraftforge.oredict.OreDictionary;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CrushHandlerBenchmark {
+
+	@Param({ "100", "1000" })
+	int recipes;
+
+	ItemStack[] probes;
+
+	@Setup
+	public void setup() {
+		BenchSetup.init();
+		CrushHandler.rebuild(b -> CrushRecipe.registerAll(b, ModConfig.recipes));
+		int base = CrushHandler.instance().getRecipes().size();
+		CrushHandler.rebuild(b -> {
+			CrushRecipe.registerAll(b, ModConfig.recipes);
+			ItemStack out = new ItemStack(Blocks.GRAVEL);
+			int added = base;
+			for (Item item : Item.REGISTRY)
+				for (int meta = 0; meta < 4 && added < recipes; meta++, added++)
+					b.add(new ItemStack(item, 1, meta == 3 ? OreDictionary.WILDCARD_VALUE : meta), out, .1f);
+		});
+		List<ItemStack> lis = Lists.newArrayList();
+		for (Item item : Item.REGISTRY) {
+			lis.add(new ItemStack(item, 1, 0));
+			lis.add(new ItemStack(item, 1, 7));
+		}
+		probes = lis.toArray(new ItemStack[lis.size()]);
+	}
+
+	@Benchmark
+	public void getResult(Blackhole bh) {
+		for (ItemStack s : probes)
+			bh.consume(CrushHandler.instance().getResult(s));
+	}
+
+	@Benchmark
+	public void getExperience(Blackhole bh) {
+		for (ItemStack s : probes)
+			bh.consume(CrushHandler.instance().getExperience(s));
+	}
+
+}
@@ -0,0 +1,142 @@
+package mrriegel.furnus.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import mrriegel.furnus.init.ModBlocks;
+import mrriegel.furnus.init.ModItems;
+import mrriegel.furnus.tile.TileDevice;
+import mrriegel.furnus.tile.TileFurnus;
+import mrriegel.furnus.util.Enums.Channel;
+import mrriegel.furnus.util.Enums.Direction;
+import mrriegel.furnus.util.Enums.Upgrade;
+import net.minecraft.init.Blocks;
+import net.minecraft.init.Items;
+import net.minecraft.item.ItemStack;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.util.EnumFacing;
+import net.minecraft.util.math.BlockPos;
+import net.minecraftforge.common.capabilities.Capability;
+import net.minecraftforge.items.CapabilityItemHandler;
+import net.minecraftforge.items.ItemStackHandler;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TileDeviceBenchmark {
+
+	@Param({ "idle", "steady", "full" })
+	String config;
+
+	BenchWorld world;
+	TileDevice tile, target;
+	NBTTagCompound nbt;
+	BenchInventory source, sink;
+	ItemStack ore = new ItemStack(Blocks.IRON_ORE);
+
+	@Setup
+	public void setup() {
+		BenchSetup.init();
+		world = new BenchWorld();
+		tile = new TileFurnus();
+		target = new TileFurnus();
+		world.place(BlockPos.ORIGIN, ModBlocks.furnus.getDefaultState(), tile);
+		world.place(BlockPos.ORIGIN.east(), ModBlocks.furnus.getDefaultState(), target);
+		if (!config.equals("idle")) {
+			tile.setInventorySlotContents(0, new ItemStack(Blocks.IRON_ORE, 64));
+			tile.setInventorySlotContents(6, new ItemStack(Items.COAL, 64));
+		}
+		if (config.equals("full")) {
+			tile.setInventorySlotContents(8, new ItemStack(ModItems.upgrade, 8, Upgrade.SPEED.ordinal()));
+			tile.setInventorySlotContents(9, new ItemStack(ModItems.upgrade, 8, Upgrade.EFFICIENCY.ordinal()));
+			tile.setInventorySlotContents(10, new ItemStack(ModItems.upgrade, 2, Upgrade.SLOT.ordinal()));
+			tile.setInventorySlotContents(11, new ItemStack(ModItems.upgrade, 1, Upgrade.IO.ordinal()));
+			tile.setInventorySlotContents(12, new ItemStack(ModItems.upgrade, 1, Upgrade.ECO.ordinal()));
+			tile.setInventorySlotContents(1, new ItemStack(Blocks.IRON_ORE, 64));
+			tile.setInventorySlotContents(2, new ItemStack(Blocks.IRON_ORE, 64));
+			tile.getSideConfig().set(Channel.IN, Direction.TOP, mrriegel.furnus.util.Enums.Mode.AUTO);
+			tile.getSideConfig().set(Channel.OUT, Direction.BOTTOM, mrriegel.furnus.util.Enums.Mode.AUTO);
+			world.place(BlockPos.ORIGIN.up(), Blocks.CHEST.getDefaultState(), source = new BenchInventory());
+			world.place(BlockPos.ORIGIN.down(), Blocks.CHEST.getDefaultState(), sink = new BenchInventory());
+		}
+		nbt = tile.writeToNBT(new NBTTagCompound());
+	}
+
+	private void refill() {
+		for (int i : tile.getInputSlots())
+			if (tile.getStackInSlot(i).getCount() < 16)
+				tile.setInventorySlotContents(i, new ItemStack(Blocks.IRON_ORE, 64));
+		for (int i : tile.getOutputSlots())
+			if (tile.getStackInSlot(i).getCount() > 32)
+				tile.setInventorySlotContents(i, ItemStack.EMPTY);
+		if (tile.getStackInSlot(6).getCount() < 16)
+			tile.setInventorySlotContents(6, new ItemStack(Items.COAL, 64));
+		if (source != null && source.handler.getStackInSlot(0).getCount() < 16)
+			source.handler.setStackInSlot(0, new ItemStack(Blocks.IRON_ORE, 64));
+		if (sink != null && !sink.handler.getStackInSlot(1).isEmpty())
+			for (int i = 0; i < sink.handler.getSlots(); i++)
+				sink.handler.setStackInSlot(i, ItemStack.EMPTY);
+	}
+
+	@Benchmark
+	public void update() {
+		world.tick();
+		tile.update();
+		if (!config.equals("idle"))
+			refill();
+	}
+
+	@Benchmark
+	public void hopperAccess(Blackhole bh) {
+		for (EnumFacing face : EnumFacing.VALUES) {
+			for (int slot : tile.getSlotsForFace(face)) {
+				bh.consume(tile.canInsertItem(slot, ore, face));
+				bh.consume(tile.canExtractItem(slot, tile.getStackInSlot(slot), face));
+			}
+		}
+	}
+
+	@Benchmark
+	public NBTTagCompound writeToNBT() {
+		return tile.writeToNBT(new NBTTagCompound());
+	}
+
+	@Benchmark
+	public TileDevice readFromNBT() {
+		target.readFromNBT(nbt);
+		return target;
+	}
+
+	private static class BenchInventory extends TileEntity {
+		final ItemStackHandler handler = new ItemStackHandler(27);
+
+		@Override
+		public boolean hasCapability(Capability<?> capability, EnumFacing facing) {
+			return capability == CapabilityItemHandler.ITEM_HANDLER_CAPABILITY || super.hasCapability(capability, facing);
+		}
+
+		@Override
+		public <T> T getCapability(Capability<T> capability, EnumFacing facing) {
+			if (capability == CapabilityItemHandler.ITEM_HANDLER_CAPABILITY)
+				return (T) handler;
+			return super.getCapability(capability, facing);
+		}
+	}
+
+}
@@ -1,5 +1,8 @@
 package mrriegel.furnus;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
 import mrriegel.furnus.proxy.CommonProxy;
 import net.minecraftforge.fml.common.Mod;
 import net.minecraftforge.fml.common.Mod.EventHandler;
@@ -8,12 +11,14 @@ import net.minecraftforge.fml.common.SidedProxy;
 import net.minecraftforge.fml.common.event.FMLInitializationEvent;
 import net.minecraftforge.fml.common.event.FMLPostInitializationEvent;
 import net.minecraftforge.fml.common.event.FMLPreInitializationEvent;
+import net.minecraftforge.fml.common.event.FMLServerStartingEvent;
 
 @Mod(modid = Furnus.MODID, name = Furnus.MODNAME, version = Furnus.VERSION, dependencies = "required-after:limelib@[1.7.0,)")
 public class Furnus {
 	public static final String MODID = "furnus";
 	public static final String VERSION = "2.1.2";
 	public static final String MODNAME = "Furnus";
+	public static final Logger LOGGER = LogManager.getLogger(MODNAME);
 
 	@Instance(Furnus.MODID)
 	public static Furnus instance;
@@ -36,4 +41,9 @@ public class Furnus {
 		proxy.postInit(event);
 	}
 
+	@EventHandler
+	public void serverStarting(FMLServerStartingEvent event) {
+		proxy.serverStarting(event);
+	}
+
 }
@@ -10,11 +10,13 @@ import mrriegel.furnus.util.CreativeTab;
 import mrriegel.furnus.util.Enums.Upgrade;
 import mrriegel.limelib.block.CommonBlockContainer;
 import mrriegel.limelib.tile.CommonTile;
+import net.minecraft.block.Block;
 import net.minecraft.block.material.Material;
 import net.minecraft.block.properties.IProperty;
 import net.minecraft.block.state.BlockStateContainer;
 import net.minecraft.block.state.IBlockState;
 import net.minecraft.entity.EntityLivingBase;
+import net.minecraft.tileentity.TileEntity;
 import net.minecraft.util.EnumFacing;
 import net.minecraft.util.EnumParticleTypes;
 import net.minecraft.util.math.BlockPos;
@@ -61,6 +63,22 @@ public class BlockDevice extends CommonBlockContainer<CommonTile> {
 		return getDefaultState().withProperty(POWERED, false).withProperty(FACING, placer.getHorizontalFacing().getOpposite());
 	}
 
+	@Override
+	public void neighborChanged(IBlockState state, World worldIn, BlockPos pos, Block blockIn, BlockPos fromPos) {
+		super.neighborChanged(state, worldIn, pos, blockIn, fromPos);
+		TileEntity tile = worldIn.getTileEntity(pos);
+		if (tile instanceof TileDevice)
+			((TileDevice) tile).onNeighborChanged(fromPos);
+	}
+
+	@Override
+	public void breakBlock(World worldIn, BlockPos pos, IBlockState state) {
+		TileEntity tile = worldIn.getTileEntity(pos);
+		if (tile instanceof TileDevice)
+			((TileDevice) tile).dropExperience(pos.getX() + .5, pos.getY() + .5, pos.getZ() + .5);
+		super.breakBlock(worldIn, pos, state);
+	}
+
 	@Override
 	public int getLightValue(IBlockState state) {
 		return state.getValue(POWERED) ? 13 : 0;
@@ -7,28 +7,38 @@ import java.util.List;
 import com.google.common.collect.Lists;
 
 import mrriegel.furnus.Furnus;
+import mrriegel.furnus.init.ModConfig;
 import mrriegel.furnus.init.ModItems;
 import mrriegel.furnus.tile.TileDevice;
 import mrriegel.furnus.tile.TileFurnus;
+import mrriegel.furnus.tile.TilePulvus;
 import mrriegel.furnus.util.Enums.Upgrade;
+import mrriegel.furnus.util.FuelCache;
 import mrriegel.limelib.gui.CommonContainerTileInventory;
 import mrriegel.limelib.gui.slot.SlotFilter;
 import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.entity.player.EntityPlayerMP;
 import net.minecraft.entity.player.InventoryPlayer;
+import net.minecraft.inventory.IContainerListener;
 import net.minecraft.inventory.IInventory;
 import net.minecraft.inventory.InventoryHelper;
 import net.minecraft.item.ItemStack;
 import net.minecraft.network.play.server.SPacketSetSlot;
-import net.minecraft.tileentity.TileEntityFurnace;
+import net.minecraftforge.fml.relauncher.Side;
+import net.minecraftforge.fml.relauncher.SideOnly;
 
 public class ContainerDevice extends CommonContainerTileInventory<TileDevice> {
 
 	int startSlots;
+	private final int[] syncedFields, clientFields;
+	private int syncCooldown;
 
 	public ContainerDevice(InventoryPlayer invPlayer, TileDevice tile) {
 		super(invPlayer, tile);
 		startSlots = tile.getAmount(Upgrade.SLOT);
+		syncedFields = new int[tile.getFieldCount()];
+		clientFields = new int[tile.getFieldCount()];
+		Arrays.fill(syncedFields, Integer.MIN_VALUE);
 	}
 
 	@Override
@@ -45,6 +55,8 @@ public class ContainerDevice extends CommonContainerTileInventory<TileDevice> {
 			addSlotToContainer(new SlotOutput(getPlayer(), getTile(), 4, 93, 44));
 		if (slots >= 2)
 			addSlotToContainer(new SlotOutput(getPlayer(), getTile(), 5, 93, 69));
+		if (getTile() instanceof TilePulvus)
+			addSlotToContainer(new SlotOutput(getPlayer(), getTile(), TileDevice.BYPRODUCT_SLOT, 122, 69));
 		addSlotToContainer(new SlotFilter(getTile(), 6, 57, 104, s -> getTile().isItemValidForSlot(6, s)));
 		addSlotToContainer(new SlotFilter(getTile(), 7, 75, 104, s -> getTile().isItemValidForSlot(7, s)));
 		addSlotToContainer(new SlotFilter(getTile(), 8, 152, 8, s -> getTile().isItemValidForSlot(8, s)));
@@ -81,6 +93,40 @@ public class ContainerDevice extends CommonContainerTileInventory<TileDevice> {
 				}
 				getPlayer().openContainer.detectAndSendChanges();
 			}
+			if (--syncCooldown <= 0) {
+				syncCooldown = ModConfig.guiSyncInterval;
+				for (int i = 0; i < syncedFields.length; i++) {
+					int value = tile.getField(i);
+					if (value == syncedFields[i])
+						continue;
+					syncedFields[i] = value;
+					for (IContainerListener listener : listeners) {
+						listener.sendWindowProperty(this, i * 2, value & 0xFFFF);
+						listener.sendWindowProperty(this, i * 2 + 1, value >>> 16);
+					}
+				}
+			}
+		}
+	}
+
+	@Override
+	public void addListener(IContainerListener listener) {
+		super.addListener(listener);
+		Arrays.fill(syncedFields, Integer.MIN_VALUE);
+		syncCooldown = 0;
+	}
+
+	@Override
+	@SideOnly(Side.CLIENT)
+	public void updateProgressBar(int id, int data) {
+		int field = id / 2;
+		if (field >= clientFields.length)
+			return;
+		if (id % 2 == 0)
+			clientFields[field] = data & 0xFFFF;
+		else {
+			clientFields[field] |= data << 16;
+			getTile().setField(field, clientFields[field]);
 		}
 	}
 
@@ -90,7 +136,7 @@ public class ContainerDevice extends CommonContainerTileInventory<TileDevice> {
 			return Collections.singletonList(getAreaForEntireInv(invPlayer));
 		else {
 			List<Area> lis = Lists.newArrayList();
-			if (TileEntityFurnace.isItemFuel(stack))
+			if (FuelCache.isFuel(stack))
 				lis.add(getAreaForInv(getTile(), 6, 2));
 			if (getTile().isItemValidForSlot(0, stack))
 				lis.add(getAreaForInv(getTile(), 0, 1 + getTile().getAmount(Upgrade.SLOT)));
@@ -103,7 +149,7 @@ public class ContainerDevice extends CommonContainerTileInventory<TileDevice> {
 
 	public static boolean slotForUpgrade(int index, Upgrade u, TileDevice tile) {
 		int emp = -1, up = -1;
-		for (int i = Arrays.stream(tile.getFuelSlots()).reduce((a, b) -> b).getAsInt() + 1; i < tile.getSizeInventory(); i++) {
+		for (int i = Arrays.stream(tile.getFuelSlots()).reduce((a, b) -> b).getAsInt() + 1; i < TileDevice.BYPRODUCT_SLOT; i++) {
 			ItemStack stack = tile.getStackInSlot(i);
 			if (stack.isEmpty() && emp == -1)
 				emp = i;
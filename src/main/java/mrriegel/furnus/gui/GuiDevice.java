@@ -7,11 +7,13 @@ import org.apache.commons.lang3.text.WordUtils;
 
 import com.google.common.collect.Lists;
 
-import mrriegel.furnus.init.ModConfig;
 import mrriegel.furnus.tile.TileDevice;
+import mrriegel.furnus.tile.TilePulvus;
 import mrriegel.furnus.util.Enums;
+import mrriegel.furnus.util.Enums.Channel;
 import mrriegel.furnus.util.Enums.Mode;
 import mrriegel.furnus.util.Enums.Upgrade;
+import mrriegel.furnus.util.UpgradeSet;
 import mrriegel.limelib.gui.CommonGuiContainer;
 import mrriegel.limelib.gui.GuiDrawer;
 import mrriegel.limelib.gui.GuiDrawer.Direction;
@@ -27,7 +29,7 @@ import net.minecraft.nbt.NBTTagCompound;
 public class GuiDevice extends CommonGuiContainer {
 
 	TileDevice tile;
-	String window = null;
+	Channel window = null;
 
 	public GuiDevice(ContainerDevice inventorySlotsIn) {
 		super(inventorySlotsIn);
@@ -43,6 +45,7 @@ public class GuiDevice extends CommonGuiContainer {
 		buttonList.add(new CommonGuiButton(1, guiLeft + 115, guiTop + 106, 12, 12, "I").setTooltip("Input").setDesign(Design.SIMPLE).setButtonColor(0xFF921909));
 		buttonList.add(new CommonGuiButton(2, guiLeft + 135, guiTop + 106, 12, 12, "O").setTooltip("Output").setDesign(Design.SIMPLE).setButtonColor(0xFF1A8AEB));
 		buttonList.add(new CommonGuiButton(3, guiLeft + 155, guiTop + 106, 12, 12, "F").setTooltip("Fuel").setDesign(Design.SIMPLE).setButtonColor(0xFF000000));
+		buttonList.add(new CommonGuiButton(4, guiLeft + 132, guiTop + 26, 12, 12, "").setTooltip("Collect experience").setDesign(Design.SIMPLE).setButtonColor(0xFF7CFC00));
 		//Sides
 		buttonList.add(new CommonGuiButton(10, guiLeft - 42, guiTop + 44, 14, 14, "0").setDesign(Design.SIMPLE));
 		buttonList.add(new CommonGuiButton(11, guiLeft - 42, guiTop + 14, 14, 14, "1").setDesign(Design.SIMPLE));
@@ -68,9 +71,11 @@ public class GuiDevice extends CommonGuiContainer {
 		}
 		if (isPointInRegion(130, 7, 16, 16, mouseX, mouseY)) {
 			List<String> strings = Lists.newArrayList();
-			strings.add("Speed: " + String.format("%.2f", 1. + tile.getAmount(Upgrade.SPEED) * ModConfig.speedMultiplier) + "x");
-			strings.add("Fuel consumption: " + String.format("%.2f", tile.fuelMultiplier()) + "x");
-			strings.add("XP: " + String.format("%.2f", 1 + tile.getAmount(Upgrade.XP) * 1.5) + "x");
+			UpgradeSet stats = tile.getUpgradeSet();
+			strings.add("Speed: " + String.format("%.2f", stats.speed) + "x");
+			strings.add("Fuel consumption: " + String.format("%.2f", stats.fuelMultiplier) + "x");
+			strings.add("XP: " + String.format("%.2f", stats.xpMultiplier) + "x");
+			strings.add("Stored XP: " + String.format("%.1f", tile.getStoredXp()));
 			if (tile.getAmount(Upgrade.ENERGY) > 0)
 				strings.add("Energy: " + tile.getEnergyStored(null) + "/" + tile.getMaxEnergyStored(null));
 			GuiDrawer.renderToolTip(strings, mouseX, mouseY);
@@ -89,6 +94,8 @@ public class GuiDevice extends CommonGuiContainer {
 		if (tile.getAmount(Upgrade.SLOT) >= 2)
 			drawProgressUnit(68, 2);
 		drawer.drawSlots(56, 103, 2, 1);
+		if (tile instanceof TilePulvus)
+			drawer.drawSlot(121, 68);
 		drawer.drawFlame(40, 106, (float) tile.getFuel() / (float) tile.getMaxfuel());
 		drawer.drawSlots(151, 7, 1, 5);
 		drawWindow();
@@ -105,7 +112,7 @@ public class GuiDevice extends CommonGuiContainer {
 
 	private void drawProgressUnit(int y, int index) {
 		drawer.drawSlot(20, y);
-		drawer.drawProgressArrow(52, y + 2, tile.getProgress().get(index) / (float) tile.neededTicks(), Direction.RIGHT);
+		drawer.drawProgressArrow(52, y + 2, Math.min(tile.getProgress(index) / (float) tile.operationWork(), 1f), Direction.RIGHT);
 		drawer.drawSizedSlot(90, y - 2, 22);
 	}
 
@@ -113,7 +120,7 @@ public class GuiDevice extends CommonGuiContainer {
 	protected void drawGuiContainerForegroundLayer(int mouseX, int mouseY) {
 		this.fontRenderer.drawString(tile.getBlockType().getLocalizedName(), 6, 6, 4210752);
 		if (window != null)
-			this.fontRenderer.drawString(WordUtils.capitalize(window), -59, 6, 4210752);
+			this.fontRenderer.drawString(WordUtils.capitalize(window.key), -59, 6, 4210752);
 		super.drawGuiContainerForegroundLayer(mouseX, mouseY);
 	}
 
@@ -131,10 +138,11 @@ public class GuiDevice extends CommonGuiContainer {
 		buttonList.get(2).visible = io;
 		buttonList.get(3).visible = io;
 		getbyID(100).visible = io && window != null;
+		getbyID(4).visible = tile.getStoredXp() >= 1;
 		for (int i = 10; i <= 15; i++) {
 			getbyID(i).visible = io && window != null;
 			if (window != null) {
-				Mode m = tile.getMap().get(window).get(Enums.Direction.values()[i - 10]);
+				Mode m = tile.getSideConfig().get(window, Enums.Direction.get(i - 10));
 				//				getbyID(i).displayString = m.digit;
 				getbyID(i).displayString = "";
 				int color = 0;
@@ -145,7 +153,7 @@ public class GuiDevice extends CommonGuiContainer {
 				else if (m == Mode.AUTO)
 					color = 0xFF00EEEE;
 				((CommonGuiButton) getbyID(i)).setButtonColor(color);
-				((CommonGuiButton) getbyID(i)).setTooltip(Enums.Direction.values()[i - 10] + ": " + m.name().toLowerCase());
+				((CommonGuiButton) getbyID(i)).setTooltip(Enums.Direction.get(i - 10) + ": " + m.name().toLowerCase());
 			}
 		}
 		if (!io) {
@@ -159,19 +167,19 @@ public class GuiDevice extends CommonGuiContainer {
 	protected void actionPerformed(GuiButton button) throws IOException {
 		NBTTagCompound nbt = new NBTTagCompound();
 		nbt.setInteger("id", button.id);
-		if (button.id == 0) {
+		if (button.id == 0 || button.id == 4) {
 			tile.sendMessage(nbt);
 			tile.handleMessage(mc.player, nbt);
 		} else if (button.id >= 10 && button.id <= 15) {
-			nbt.setString("win", window);
+			nbt.setString("win", window.key);
 			tile.sendMessage(nbt);
 			tile.handleMessage(mc.player, nbt);
 		} else if (button.id == 1)
-			window = "in";
+			window = Channel.IN;
 		else if (button.id == 2)
-			window = "out";
+			window = Channel.OUT;
 		else if (button.id == 3)
-			window = "fuel";
+			window = Channel.FUEL;
 		else if (button.id == 100)
 			window = null;
 	}
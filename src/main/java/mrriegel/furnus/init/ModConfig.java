@@ -1,44 +1,74 @@
 package mrriegel.furnus.init;
 
 import java.io.File;
-import java.util.Arrays;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Maps;
-import com.google.common.reflect.TypeToken;
+import com.google.common.io.Files;
 import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
 
+import mrriegel.furnus.Furnus;
 import mrriegel.furnus.util.CrushRecipe;
+import mrriegel.furnus.util.CrushRecipe.Byproduct;
 import mrriegel.furnus.util.Enums.Upgrade;
+import net.minecraft.util.JsonUtils;
 import net.minecraftforge.common.config.Configuration;
-import net.minecraftforge.common.config.Property;
 
 public class ModConfig {
 
 	public static Configuration config;
+	public static int version;
 
+	public static File recipeFile;
 	public static List<CrushRecipe> recipes;
 	public static String[] blacklistDusts;
-	public static boolean dusts;
+	public static boolean dusts, profiling, arrays;
 	public static Map<Upgrade, Boolean> upgrades = Maps.newHashMap();
 	public static Map<Upgrade, Integer> maxStacksize = Maps.newHashMap();
 	public static double speedMultiplier, speedFuelMultiplier, effiFuelMultiplier;
+	public static int maxBatchSize, ioInterval, ioStackSize, ioFuelStackSize, guiSyncInterval, litHysteresis, maxArraySize, energyPerFuel, catchUpTicks, organizeInterval;
 
-	@SuppressWarnings("serial")
 	public static void refreshConfig(File file) {
 		config = new Configuration(file);
 		config.load();
-		Gson gson = new Gson();
-		Property prop = config.get("recipe", "pulvus_recipes", CrushRecipe.getDefaultRecipes().stream().map(r -> gson.toJson(r)).toArray(String[]::new));
-		prop.setLanguageKey("pulvus_recipes");
-		prop.setComment("Pulvus Recipes" + //
-				Configuration.NEW_LINE + "item: modID:itemNname OR oreDictName" + //
-				Configuration.NEW_LINE + "amount: #number" + //
-				Configuration.NEW_LINE + "metadata: /number");
-		recipes = Arrays.stream(prop.getStringList()).map(s -> (CrushRecipe) gson.fromJson(s, new TypeToken<CrushRecipe>() {
-		}.getType())).collect(Collectors.toList());
+		version++;
+		recipeFile = new File(file.getParentFile(), Furnus.MODID + "_pulvus.json");
+		if (recipeFile.exists()) {
+			try {
+				recipes = readRecipes(recipeFile, false);
+			} catch (IllegalArgumentException e) {
+				Furnus.LOGGER.error("{}, using the default pulvus recipes", e.getMessage());
+				recipes = CrushRecipe.getDefaultRecipes();
+			}
+		} else {
+			recipes = CrushRecipe.getDefaultRecipes();
+			if (config.hasKey("recipe", "pulvus_recipes")) {
+				Gson gson = new Gson();
+				ImmutableList.Builder<CrushRecipe> builder = ImmutableList.builder();
+				for (String s : config.get("recipe", "pulvus_recipes", new String[0]).getStringList()) {
+					try {
+						builder.add(toRecipe(gson.fromJson(s, JsonObject.class)));
+					} catch (RuntimeException e) {
+						Furnus.LOGGER.warn("Skipped pulvus recipe {}: {}", s, e.getMessage());
+					}
+				}
+				recipes = builder.build();
+			}
+			writeRecipes(recipeFile, recipes);
+		}
+		if (config.hasCategory("recipe"))
+			config.getCategory("recipe").remove("pulvus_recipes");
 		blacklistDusts = config.getStringList("blacklistDusts", Configuration.CATEGORY_GENERAL, new String[] { "dustCoal" }, "Blacklist for dusts which should not be craftable in pulvus.");
 		dusts = config.getBoolean("dusts", "recipe", true, "Enable built in dusts");
 		for (Upgrade u : Upgrade.values()) {
@@ -48,10 +78,66 @@ public class ModConfig {
 		speedMultiplier = config.getFloat("speedMultiplier", "multiplier", .5f, .05f, 5f, "Multiplier of Speed Upgrade");
 		speedFuelMultiplier = config.getFloat("speedFuelMultiplier", "multiplier", .4f, .05f, 5f, "Multiplier of Fuel Consumption of Speed Upgrade");
 		effiFuelMultiplier = config.getFloat("effiFuelMultiplier", "multiplier", .3f, .05f, 5f, "Multiplier of Fuel Consumption of Efficiency Upgrade");
+		energyPerFuel = config.getInt("energyPerFuel", "multiplier", 25, 1, 1000, "RF drawn per fuel unit (a coal is 1600) when a device runs on energy");
+		maxBatchSize = config.getInt("maxBatchSize", "multiplier", 8, 1, 64, "Max operations one input slot may complete in a single tick");
+		ioInterval = config.getInt("ioInterval", "automation", 10, 1, 200, "Ticks between automatic input/output transfers of the IO Upgrade");
+		organizeInterval = config.getInt("organizeInterval", "automation", 8, 1, 200, "Ticks between sorting items across the input slots of the Slot Upgrade");
+		ioStackSize = config.getInt("ioStackSize", "automation", 2, 1, 64, "Items moved per automatic transfer and input slot");
+		ioFuelStackSize = config.getInt("ioFuelStackSize", "automation", 1, 1, 64, "Fuel items moved per automatic transfer");
+		arrays = config.getBoolean("arrays", "automation", false, "Link adjacent devices of the same kind into an array sharing fuel, energy and one IO scheduler");
+		maxArraySize = config.getInt("maxArraySize", "automation", 16, 2, 64, "Max devices linked into one array");
+		guiSyncInterval = config.getInt("guiSyncInterval", Configuration.CATEGORY_GENERAL, 2, 1, 20, "Min ticks between progress and fuel updates sent to open GUIs");
+		litHysteresis = config.getInt("litHysteresis", Configuration.CATEGORY_GENERAL, 10, 0, 200, "Ticks a device has to stay without fuel before it stops glowing");
+		catchUpTicks = config.getInt("catchUpTicks", Configuration.CATEGORY_GENERAL, 24000, 0, 1728000, "Max ticks a device catches up on when its chunk loads again, 0 to disable");
+		profiling = config.getBoolean("profiling", Configuration.CATEGORY_GENERAL, false, "Record tick timings of every Furnus and Pulvus from server start, see /furnus stats");
 		if (config.hasChanged()) {
 			config.save();
 		}
 
 	}
 
+	/**
+	 * Pulvus recipes, one object per recipe.<br>
+	 * item: modID:itemName OR oreDictName, amount: #number, metadata: /number<br>
+	 * optional byproducts: [{item, chance}], chance per operation in (0, 1]<br>
+	 * A strict read throws on the first invalid recipe, otherwise invalid recipes are logged and skipped.
+	 */
+	public static ImmutableList<CrushRecipe> readRecipes(File file, boolean strict) {
+		try (Reader reader = Files.newReader(file, StandardCharsets.UTF_8)) {
+			JsonArray array = new JsonParser().parse(reader).getAsJsonArray();
+			ImmutableList.Builder<CrushRecipe> builder = ImmutableList.builder();
+			for (int i = 0; i < array.size(); i++) {
+				try {
+					builder.add(toRecipe(array.get(i).getAsJsonObject()));
+				} catch (RuntimeException e) {
+					String message = "Pulvus recipe #" + (i + 1) + " in " + file.getName() + ": " + e.getMessage();
+					if (strict)
+						throw new IllegalArgumentException(message, e);
+					Furnus.LOGGER.warn("Skipped {}", message);
+				}
+			}
+			return builder.build();
+		} catch (IOException | JsonParseException | IllegalStateException e) {
+			throw new IllegalArgumentException("Unable to read " + file.getName() + ": " + e.getMessage(), e);
+		}
+	}
+
+	private static CrushRecipe toRecipe(JsonObject json) {
+		JsonArray array = JsonUtils.getJsonArray(json, "byproducts", new JsonArray());
+		Byproduct[] byproducts = new Byproduct[array.size()];
+		for (int i = 0; i < byproducts.length; i++) {
+			JsonObject b = JsonUtils.getJsonObject(array.get(i), "byproduct");
+			byproducts[i] = new Byproduct(JsonUtils.getString(b, "item"), JsonUtils.getFloat(b, "chance"));
+		}
+		return new CrushRecipe(JsonUtils.getString(json, "inputItem"), JsonUtils.getString(json, "outputItem"), JsonUtils.getFloat(json, "experience", 0f), byproducts);
+	}
+
+	private static void writeRecipes(File file, List<CrushRecipe> recipes) {
+		try (Writer writer = Files.newWriter(file, StandardCharsets.UTF_8)) {
+			new GsonBuilder().setPrettyPrinting().create().toJson(recipes, writer);
+		} catch (IOException e) {
+			Furnus.LOGGER.error("Unable to write " + file.getName(), e);
+		}
+	}
+
 }
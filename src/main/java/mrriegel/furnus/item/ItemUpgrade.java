@@ -18,13 +18,13 @@ import net.minecraft.world.World;
 public class ItemUpgrade extends CommonSubtypeItem {
 
 	public ItemUpgrade() {
-		super("upgrade", Upgrade.values().length);
+		super("upgrade", Upgrade.count());
 		setCreativeTab(CreativeTab.tab);
 	}
 
 	@Override
 	public int getItemStackLimit(ItemStack stack) {
-		return ModConfig.maxStacksize.get(Upgrade.values()[stack.getItemDamage()]);
+		return ModConfig.maxStacksize.get(Upgrade.get(stack.getItemDamage()));
 	}
 
 	@Override
@@ -36,7 +36,7 @@ public class ItemUpgrade extends CommonSubtypeItem {
 	@Override
 	public void getSubItems(CreativeTabs tab, NonNullList<ItemStack> subItems) {
 		super.getSubItems(tab, subItems);
-		Iterables.removeIf(subItems, s -> s.getItem() == this && !ModConfig.upgrades.get(Upgrade.values()[s.getItemDamage()]));
+		Iterables.removeIf(subItems, s -> s.getItem() == this && !ModConfig.upgrades.get(Upgrade.get(s.getItemDamage())));
 	}
 
 }
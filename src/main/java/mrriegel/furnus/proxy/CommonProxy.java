@@ -5,12 +5,17 @@ import mrriegel.furnus.init.ModBlocks;
 import mrriegel.furnus.init.ModConfig;
 import mrriegel.furnus.init.ModItems;
 import mrriegel.furnus.init.ModRecipes;
+import mrriegel.furnus.tile.DeviceProfiler;
+import mrriegel.furnus.util.CommandFurnus;
+import mrriegel.furnus.util.CrushHandler;
 import mrriegel.furnus.util.CrushRecipe;
+import mrriegel.furnus.util.FuelCache;
 import mrriegel.furnus.util.GuiHandler;
 import net.minecraft.item.ItemStack;
 import net.minecraftforge.fml.common.event.FMLInitializationEvent;
 import net.minecraftforge.fml.common.event.FMLPostInitializationEvent;
 import net.minecraftforge.fml.common.event.FMLPreInitializationEvent;
+import net.minecraftforge.fml.common.event.FMLServerStartingEvent;
 import net.minecraftforge.fml.common.network.NetworkRegistry;
 import net.minecraftforge.oredict.OreDictionary;
 
@@ -30,9 +35,13 @@ public class CommonProxy {
 	}
 
 	public void postInit(FMLPostInitializationEvent event) {
-		for (CrushRecipe r : ModConfig.recipes)
-			r.register();
-		CrushRecipe.registerDefaultOreRecipes();
+		CrushHandler.rebuild(b -> CrushRecipe.registerAll(b, ModConfig.recipes));
+	}
+
+	public void serverStarting(FMLServerStartingEvent event) {
+		DeviceProfiler.setEnabled(ModConfig.profiling);
+		FuelCache.invalidate();
+		event.registerServerCommand(new CommandFurnus());
 	}
 
 }
@@ -0,0 +1,94 @@
+package mrriegel.furnus.tile;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+import mrriegel.furnus.init.ModConfig;
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.util.EnumFacing;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+
+/** Adjacent devices of the same kind, fueled from one pool and served by one IO scheduler on the master. */
+public class DeviceArray {
+
+	final List<TileDevice> members;
+	final Set<BlockPos> positions;
+	final TileDevice master;
+	private boolean valid = true;
+	private int port;
+
+	private DeviceArray(List<TileDevice> members) {
+		this.members = Collections.unmodifiableList(members);
+		this.positions = Sets.newHashSet();
+		TileDevice master = members.get(0);
+		for (TileDevice t : members) {
+			positions.add(t.getPos());
+			if (t.getPos().compareTo(master.getPos()) < 0)
+				master = t;
+		}
+		this.master = master;
+	}
+
+	static DeviceArray form(TileDevice start) {
+		World world = start.getWorld();
+		List<TileDevice> members = Lists.newArrayList(start);
+		Set<BlockPos> visited = Sets.newHashSet(start.getPos());
+		Deque<TileDevice> queue = new ArrayDeque<>(members);
+		while (!queue.isEmpty() && members.size() < ModConfig.maxArraySize) {
+			TileDevice t = queue.poll();
+			for (EnumFacing face : EnumFacing.VALUES) {
+				BlockPos p = t.getPos().offset(face);
+				if (!visited.add(p) || !world.isBlockLoaded(p))
+					continue;
+				TileEntity tile = world.getTileEntity(p);
+				if (tile != null && tile.getClass() == start.getClass() && !tile.isInvalid() && ((TileDevice) tile).array == null && members.size() < ModConfig.maxArraySize) {
+					members.add((TileDevice) tile);
+					queue.add((TileDevice) tile);
+				}
+			}
+		}
+		DeviceArray array = new DeviceArray(members);
+		for (TileDevice t : members)
+			t.array = array;
+		return array;
+	}
+
+	void dissolve() {
+		valid = false;
+		for (TileDevice t : members)
+			if (t.array == this)
+				t.array = null;
+	}
+
+	boolean isValid() {
+		return valid;
+	}
+
+	boolean isFull() {
+		return members.size() >= ModConfig.maxArraySize;
+	}
+
+	/** The member whose neighbors are served on this IO tick, rotates through all members. */
+	TileDevice nextPort() {
+		port = (port + 1) % members.size();
+		return members.get(port);
+	}
+
+	/** A member that can refuel the target, preferring the target itself. */
+	TileDevice fuelSource(TileDevice target) {
+		if (target.hasFuelSupply())
+			return target;
+		for (TileDevice t : members)
+			if (t != target && !t.isInvalid() && t.hasFuelSupply())
+				return t;
+		return target;
+	}
+
+}
@@ -0,0 +1,114 @@
+package mrriegel.furnus.tile;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.stream.Collectors;
+
+import net.minecraft.util.math.BlockPos;
+
+public class DeviceProfiler {
+
+	public static final int WINDOW = 200;
+	public static boolean enabled = false;
+	private static final Map<TileDevice, Stats> stats = new WeakHashMap<>();
+
+	public enum Phase {
+		OUTPUT, INPUT, ORGANIZE, FUEL, BURN;
+	}
+
+	static Stats get(TileDevice tile) {
+		Stats s = stats.get(tile);
+		if (s == null)
+			stats.put(tile, s = new Stats(tile));
+		return s;
+	}
+
+	public static void setEnabled(boolean enabled) {
+		DeviceProfiler.enabled = enabled;
+		if (!enabled)
+			stats.clear();
+	}
+
+	public static void reset() {
+		stats.clear();
+	}
+
+	public static List<Stats> getTop(int n) {
+		stats.keySet().removeIf(TileDevice::isInvalid);
+		return stats.values().stream().filter(s -> s.size > 0).sorted(Comparator.comparingDouble(Stats::getAverageNanos).reversed()).limit(n).collect(Collectors.toList());
+	}
+
+	public static class Stats {
+		public final BlockPos pos;
+		public final int dimension;
+		public final String name;
+		private final long[] window = new long[WINDOW];
+		private final boolean[] idle = new boolean[WINDOW];
+		private final long[] phases = new long[Phase.values().length];
+		private int index, size;
+		private long current, ticks, items;
+		private double fuel;
+
+		private Stats(TileDevice tile) {
+			pos = tile.getPos();
+			dimension = tile.getWorld().provider.getDimension();
+			name = tile.getBlockType().getLocalizedName();
+		}
+
+		long phase(Phase phase, long start) {
+			long now = System.nanoTime();
+			phases[phase.ordinal()] += now - start;
+			current += now - start;
+			return now;
+		}
+
+		void endTick(long start, boolean sleeping, double fuelUsed) {
+			current += System.nanoTime() - start;
+			window[index] = current;
+			idle[index] = sleeping;
+			index = (index + 1) % WINDOW;
+			size = Math.min(size + 1, WINDOW);
+			current = 0;
+			ticks++;
+			fuel += fuelUsed;
+		}
+
+		void processed(int count) {
+			items += count;
+		}
+
+		public double getAverageNanos() {
+			long sum = 0;
+			for (int i = 0; i < size; i++)
+				sum += window[i];
+			return size == 0 ? 0 : sum / (double) size;
+		}
+
+		public double getIdleRatio() {
+			int count = 0;
+			for (int i = 0; i < size; i++)
+				if (idle[i])
+					count++;
+			return size == 0 ? 0 : count / (double) size;
+		}
+
+		public double getAveragePhaseNanos(Phase phase) {
+			return ticks == 0 ? 0 : phases[phase.ordinal()] / (double) ticks;
+		}
+
+		public long getItems() {
+			return items;
+		}
+
+		public double getFuel() {
+			return fuel;
+		}
+
+		public long getTicks() {
+			return ticks;
+		}
+	}
+
+}
@@ -1,12 +1,12 @@
 package mrriegel.furnus.tile;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Predicate;
 
 import com.google.common.base.Predicates;
-import com.google.common.collect.Maps;
 import com.google.common.primitives.Ints;
 
 import cofh.redstoneflux.api.IEnergyReceiver;
@@ -14,9 +14,14 @@ import mrriegel.furnus.Furnus;
 import mrriegel.furnus.gui.ContainerDevice;
 import mrriegel.furnus.init.ModConfig;
 import mrriegel.furnus.init.ModItems;
+import mrriegel.furnus.tile.DeviceProfiler.Phase;
+import mrriegel.furnus.util.Enums.Channel;
 import mrriegel.furnus.util.Enums.Direction;
 import mrriegel.furnus.util.Enums.Mode;
 import mrriegel.furnus.util.Enums.Upgrade;
+import mrriegel.furnus.util.FuelCache;
+import mrriegel.furnus.util.SideConfig;
+import mrriegel.furnus.util.UpgradeSet;
 import mrriegel.limelib.LimeLib;
 import mrriegel.limelib.block.CommonBlock;
 import mrriegel.limelib.helper.InvHelper;
@@ -30,14 +35,17 @@ import net.darkhax.tesla.api.ITeslaHolder;
 import net.darkhax.tesla.capability.TeslaCapabilities;
 import net.minecraft.block.BlockDirectional;
 import net.minecraft.block.BlockLever;
+import net.minecraft.entity.item.EntityXPOrb;
 import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.entity.player.EntityPlayerMP;
 import net.minecraft.inventory.ISidedInventory;
 import net.minecraft.item.ItemStack;
 import net.minecraft.nbt.NBTTagCompound;
-import net.minecraft.tileentity.TileEntityFurnace;
+import net.minecraft.network.play.server.SPacketUpdateTileEntity;
+import net.minecraft.tileentity.TileEntity;
 import net.minecraft.util.EnumFacing;
 import net.minecraft.util.ITickable;
+import net.minecraft.util.math.BlockPos;
 import net.minecraftforge.common.capabilities.Capability;
 import net.minecraftforge.energy.CapabilityEnergy;
 import net.minecraftforge.energy.IEnergyStorage;
@@ -48,107 +56,236 @@ import net.minecraftforge.items.ItemHandlerHelper;
 @Optional.Interface(iface = "cofh.redstoneflux.api.IEnergyReceiver", modid = "redstoneflux")
 public abstract class TileDevice extends CommonTileInventory implements ITickable, ISidedInventory, IEnergyReceiver {
 
-	protected EnergyStorageExt energy = new EnergyStorageExt(80000, 2000);
-	protected Map<String, Map<Direction, Mode>> map = Maps.newHashMap();
-	protected Map<Integer, Integer> progress = Maps.newHashMap();
+	protected EnergyStorageExt energy = new EnergyStorageExt(80000, 2000) {
+		@Override
+		public int receiveEnergy(int maxReceive, boolean simulate) {
+			int received = super.receiveEnergy(maxReceive, simulate);
+			if (received > 0 && !simulate)
+				wakeFuelUsers();
+			return received;
+		}
+	};
+	protected SideConfig sides = new SideConfig();
+	protected final int[] progress = new int[3];
 	protected boolean split;
 	protected double fuel, maxfuel, lastTickFuelUsed;
+	protected int storedXp;
+	private boolean sleeping, energyActive;
+	private long savedTime;
+	private double energyRemainder;
+	DeviceArray array;
+	private final List<TileDevice> self = Collections.singletonList(this);
 
 	public TileDevice() {
-		super(13);
-		for (int i = 0; i < 3; i++)
-			progress.put(i, 0);
-		map.put("in", Maps.newHashMap());
-		map.put("out", Maps.newHashMap());
-		map.put("fuel", Maps.newHashMap());
-		for (Direction f : Direction.values())
-			for (String k : map.keySet()) {
-				map.get(k).put(f, Mode.DISABLED);
-			}
-		map.get("in").put(Direction.TOP, Mode.ENABLED);
-		map.get("out").put(Direction.BOTTOM, Mode.ENABLED);
-		map.get("fuel").put(Direction.FRONT, Mode.ENABLED);
-		map.get("fuel").put(Direction.LEFT, Mode.ENABLED);
-		map.get("fuel").put(Direction.RIGHT, Mode.ENABLED);
-		map.get("fuel").put(Direction.BACK, Mode.ENABLED);
+		super(14);
+		sides.set(Channel.IN, Direction.TOP, Mode.ENABLED);
+		sides.set(Channel.OUT, Direction.BOTTOM, Mode.ENABLED);
+		sides.set(Channel.FUEL, Direction.FRONT, Mode.ENABLED);
+		sides.set(Channel.FUEL, Direction.LEFT, Mode.ENABLED);
+		sides.set(Channel.FUEL, Direction.RIGHT, Mode.ENABLED);
+		sides.set(Channel.FUEL, Direction.BACK, Mode.ENABLED);
 	}
 
-	private Map<Upgrade, Integer> cache = null;
+	private final int[] upgrades = new int[Upgrade.count()];
+	private boolean upgradesValid;
+	private UpgradeSet upgradeSet;
+	private final ItemStack[] resultInputs = new ItemStack[3];
+	private final ItemStack[] results = new ItemStack[3];
+	private static volatile int recipeEpoch;
+	private int resultEpoch;
 
-	public int getAmount(Upgrade upgrade) {
-		if (cache == null) {
-			cache = Maps.newEnumMap(Upgrade.class);
-			for (Upgrade u : Upgrade.values())
-				cache.put(u, 0);
+	/** Drops the memoized results of all devices, call after the recipes changed. */
+	public static void invalidateRecipeCaches() {
+		recipeEpoch++;
+	}
+
+	private void validateResults() {
+		if (resultEpoch != recipeEpoch) {
+			Arrays.fill(resultInputs, null);
+			resultEpoch = recipeEpoch;
+			sleeping = false;
+		}
+	}
+
+	public UpgradeSet getUpgradeSet() {
+		if (!upgradesValid || !upgradeSet.isCurrent()) {
+			Arrays.fill(upgrades, 0);
 			for (int i = 8; i < 13; i++) {
 				ItemStack u = getStackInSlot(i);
-				if (u.getItem() == ModItems.upgrade && ModConfig.upgrades.get(Upgrade.values()[u.getItemDamage()]))
-					cache.put(Upgrade.values()[u.getItemDamage()], u.getCount());
+				if (u.getItem() == ModItems.upgrade && ModConfig.upgrades.get(Upgrade.get(u.getItemDamage())))
+					upgrades[u.getItemDamage()] = u.getCount();
 			}
+			if (upgradeSet == null || !upgradeSet.matches(upgrades))
+				upgradeSet = new UpgradeSet(this instanceof TileFurnus ? 140 : 180, upgrades);
+			upgradesValid = true;
 		}
-		return cache.get(upgrade);
+		return upgradeSet;
+	}
+
+	public int getAmount(Upgrade upgrade) {
+		return getUpgradeSet().getAmount(upgrade);
 	}
 
 	@Override
 	public void markDirty() {
 		super.markDirty();
-		cache = null;
+		upgradesValid = false;
+		Arrays.fill(resultInputs, null);
+		wakeUp();
+	}
+
+	@Override
+	public void setInventorySlotContents(int index, ItemStack stack) {
+		super.setInventorySlotContents(index, stack);
+		if (index < resultInputs.length)
+			resultInputs[index] = null;
+		if (contains(fuelMask, index))
+			wakeFuelUsers();
+		else
+			wakeUp();
+	}
+
+	public void wakeUp() {
+		sleeping = false;
+	}
+
+	/** Wakes this device and every array member that may refuel from it. */
+	private void wakeFuelUsers() {
+		if (array != null && array.isValid())
+			for (TileDevice t : array.members)
+				t.wakeUp();
+		wakeUp();
+	}
+
+	public boolean isSleeping() {
+		return sleeping;
+	}
+
+	private boolean canSleep() {
+		if (fuel <= 0 && !canRefuel())
+			return true;
+		if (canProcessAny() || (fuel > 0 && getAmount(Upgrade.ECO) == 0))
+			return false;
+		if (getAmount(Upgrade.SLOT) > 0)
+			for (int i : getInputSlots())
+				if (!getStackInSlot(i).isEmpty())
+					return false;
+		return true;
+	}
+
+	public static final int BYPRODUCT_SLOT = 13;
+	private static final int[][] inputSlots = { { 0 }, { 0, 1 }, { 0, 1, 2 } }, outputSlots = { { 3 }, { 3, 4 }, { 3, 4, 5 } };
+	private static final int[] fuelSlots = { 6, 7 }, noSlots = {};
+	private static final int[] inputMasks = { mask(inputSlots[0]), mask(inputSlots[1]), mask(inputSlots[2]) }, outputMasks = { mask(outputSlots[0]), mask(outputSlots[1]), mask(outputSlots[2]) };
+	private static final int fuelMask = mask(fuelSlots);
+
+	private static int mask(int[] slots) {
+		int mask = 0;
+		for (int i : slots)
+			mask |= 1 << i;
+		return mask;
+	}
+
+	private static boolean contains(int mask, int index) {
+		return index >= 0 && index < 32 && (mask >>> index & 1) != 0;
 	}
 
+	/** The returned arrays are shared and must not be modified. */
 	public int[] getInputSlots() {
-		int s = getAmount(Upgrade.SLOT);
-		if (s == 0)
-			return new int[] { 0 };
-		if (s == 1)
-			return new int[] { 0, 1 };
-		if (s == 2)
-			return new int[] { 0, 1, 2 };
-		return new int[0];
+		return inputSlots[getUpgradeSet().lanes - 1];
 	}
 
 	public int[] getOutputSlots() {
-		int s = getAmount(Upgrade.SLOT);
-		if (s == 0)
-			return new int[] { 3 };
-		if (s == 1)
-			return new int[] { 3, 4 };
-		if (s == 2)
-			return new int[] { 3, 4, 5 };
-		return new int[0];
+		return outputSlots[getUpgradeSet().lanes - 1];
 	}
 
 	public int[] getFuelSlots() {
-		return new int[] { 6, 7 };
+		return fuelSlots;
+	}
+
+	private int getInputMask() {
+		return inputMasks[getUpgradeSet().lanes - 1];
+	}
+
+	protected int getOutputMask() {
+		return outputMasks[getUpgradeSet().lanes - 1];
 	}
 
+	/** 1 stored the fuel values as fixed-point ints, 2 stores them as doubles again. */
+	private static final byte NBT_VERSION = 2;
+	private static final double FUEL_SCALE = 1000.;
+	public static final int XP_SCALE = 1000;
+
 	@Override
 	public void readFromNBT(NBTTagCompound compound) {
 		energy.setEnergyStored(compound.getInteger("energy"));
-		progress = NBTHelper.getMap(compound, "progress", Integer.class, Integer.class);
 		split = compound.getBoolean("split");
+		byte version = compound.getByte("nbtv");
+		if (version >= 1) {
+			int[] prog = compound.getIntArray("prog");
+			for (int i = 0; i < 3; i++)
+				progress[i] = i < prog.length ? prog[i] : 0;
+			if (version >= 2) {
+				fuel = compound.getDouble("fuel");
+				maxfuel = compound.getDouble("maxfuel");
+				lastTickFuelUsed = compound.getDouble("lastTickFuelUsed");
+			} else {
+				int[] fuels = compound.getIntArray("fuels");
+				fuel = fuels.length > 0 ? fuels[0] / FUEL_SCALE : 0;
+				maxfuel = fuels.length > 1 ? fuels[1] / FUEL_SCALE : 0;
+				lastTickFuelUsed = fuels.length > 2 ? fuels[2] / FUEL_SCALE : 0;
+			}
+			sides.setPacked(compound.getLong("sides"));
+		} else
+			readLegacyNBT(compound);
+		storedXp = compound.getInteger("xp");
+		savedTime = compound.getLong("time");
+		sleeping = false;
+		super.readFromNBT(compound);
+	}
+
+	private void readLegacyNBT(NBTTagCompound compound) {
+		boolean work = compound.hasKey("workprogress");
+		Map<Integer, Integer> prog = NBTHelper.getMap(compound, work ? "workprogress" : "progress", Integer.class, Integer.class);
+		for (int i = 0; i < progress.length; i++) {
+			Integer p = prog.get(i);
+			progress[i] = p == null ? 0 : work ? p : p * WORK_PER_TICK;
+		}
 		fuel = compound.getDouble("fuel");
 		maxfuel = compound.getDouble("maxfuel");
 		lastTickFuelUsed = compound.getDouble("lastTickFuelUsed");
-		map.put("in", NBTHelper.getMap(compound, "inmap", Direction.class, Mode.class));
-		map.put("out", NBTHelper.getMap(compound, "outmap", Direction.class, Mode.class));
-		map.put("fuel", NBTHelper.getMap(compound, "fuelmap", Direction.class, Mode.class));
-		super.readFromNBT(compound);
+		sides.readLegacyNBT(compound);
 	}
 
 	@Override
 	public NBTTagCompound writeToNBT(NBTTagCompound compound) {
+		compound.setByte("nbtv", NBT_VERSION);
 		compound.setInteger("energy", energy.getEnergyStored());
-		NBTHelper.setMap(compound, "progress", progress);
 		compound.setBoolean("split", split);
+		compound.setIntArray("prog", progress.clone());
 		compound.setDouble("fuel", fuel);
 		compound.setDouble("maxfuel", maxfuel);
 		compound.setDouble("lastTickFuelUsed", lastTickFuelUsed);
-		NBTHelper.setMap(compound, "inmap", map.get("in"));
-		NBTHelper.setMap(compound, "outmap", map.get("out"));
-		NBTHelper.setMap(compound, "fuelmap", map.get("fuel"));
+		compound.setLong("sides", sides.getPacked());
+		compound.setInteger("xp", storedXp);
+		if (world != null && !world.isRemote)
+			compound.setLong("time", world.getTotalWorldTime());
 		return super.writeToNBT(compound);
 	}
 
+	/** Clients never catch up, so the save time is left out of their updates. */
+	@Override
+	public NBTTagCompound getUpdateTag() {
+		NBTTagCompound tag = writeToNBT(new NBTTagCompound());
+		tag.removeTag("time");
+		return tag;
+	}
+
+	@Override
+	public SPacketUpdateTileEntity getUpdatePacket() {
+		return new SPacketUpdateTileEntity(pos, 1, getUpdateTag());
+	}
+
 	@Override
 	public boolean openGUI(EntityPlayerMP player) {
 		int i = this instanceof TileFurnus ? 0 : 1;
@@ -172,12 +309,83 @@ public abstract class TileDevice extends CommonTileInventory implements ITickabl
 		return lastTickFuelUsed;
 	}
 
-	public Map<Integer, Integer> getProgress() {
-		return progress;
+	public int getProgress(int slot) {
+		return progress[slot];
+	}
+
+	public double getStoredXp() {
+		return storedXp / (double) XP_SCALE;
+	}
+
+	public void dropExperience(EntityPlayer player) {
+		dropExperience(player.posX, player.posY + 0.5D, player.posZ + 0.5D);
+	}
+
+	/** Pays out all whole experience points as one orb, the fraction stays stored. */
+	public void dropExperience(double x, double y, double z) {
+		int xp = storedXp / XP_SCALE;
+		if (xp <= 0 || world.isRemote)
+			return;
+		storedXp -= xp * XP_SCALE;
+		world.spawnEntity(new EntityXPOrb(world, x, y, z, xp));
+		markDirty();
 	}
 
-	public Map<String, Map<Direction, Mode>> getMap() {
-		return map;
+	@Override
+	public int getFieldCount() {
+		return 8;
+	}
+
+	@Override
+	public int getField(int id) {
+		switch (id) {
+		case 0:
+		case 1:
+		case 2:
+			return progress[id];
+		case 3:
+			return (int) (fuel * 100);
+		case 4:
+			return (int) (maxfuel * 100);
+		case 5:
+			return energy.getEnergyStored();
+		case 6:
+			return (int) (lastTickFuelUsed * 1000);
+		case 7:
+			return storedXp;
+		default:
+			return 0;
+		}
+	}
+
+	@Override
+	public void setField(int id, int value) {
+		switch (id) {
+		case 0:
+		case 1:
+		case 2:
+			progress[id] = value;
+			break;
+		case 3:
+			fuel = value / 100.;
+			break;
+		case 4:
+			maxfuel = value / 100.;
+			break;
+		case 5:
+			energy.setEnergyStored(value);
+			break;
+		case 6:
+			lastTickFuelUsed = value / 1000.;
+			break;
+		case 7:
+			storedXp = value;
+			break;
+		}
+	}
+
+	public SideConfig getSideConfig() {
+		return sides;
 	}
 
 	@Override
@@ -200,148 +408,363 @@ public abstract class TileDevice extends CommonTileInventory implements ITickabl
 		return getAmount(Upgrade.ENERGY) > 0 ? energy.receiveEnergy(maxReceive, simulate) : 0;
 	}
 
+	private final int[][] faceSlots = new int[6][];
+	private final int[] faceInMasks = new int[6], faceOutMasks = new int[6], faceFuelMasks = new int[6];
+	private final Direction[] faceDirections = new Direction[6];
+	private boolean facesValid;
+	private long facesSides;
+	private int facesSlots, facesIO;
+
+	private void validateFaces() {
+		int slots = getAmount(Upgrade.SLOT), io = getAmount(Upgrade.IO);
+		if (facesValid && facesSides == sides.getPacked() && facesSlots == slots && facesIO == io)
+			return;
+		int[] in = getInputSlots(), out = getOutputSlots();
+		int inputMask = getInputMask(), outputMask = getOutputMask();
+		for (EnumFacing side : EnumFacing.VALUES) {
+			int i = side.ordinal();
+			Direction dir = getDirectionFromSide(side);
+			faceDirections[i] = dir;
+			boolean inEnabled = sides.isEnabled(Channel.IN, dir), outEnabled = sides.isEnabled(Channel.OUT, dir), fuelEnabled = sides.isEnabled(Channel.FUEL, dir);
+			faceInMasks[i] = inEnabled ? inputMask : 0;
+			faceOutMasks[i] = outEnabled ? outputMask : 0;
+			faceFuelMasks[i] = fuelEnabled ? fuelMask : 0;
+			if (io == 0)
+				faceSlots[i] = side == EnumFacing.DOWN ? out : side == EnumFacing.UP ? in : fuelSlots;
+			else
+				faceSlots[i] = Ints.concat(inEnabled ? in : noSlots, outEnabled ? out : noSlots, fuelEnabled ? fuelSlots : noSlots);
+		}
+		facesSides = sides.getPacked();
+		facesSlots = slots;
+		facesIO = io;
+		facesValid = true;
+	}
+
+	@Override
+	public void updateContainingBlockInfo() {
+		super.updateContainingBlockInfo();
+		facesValid = false;
+		litKnown = false;
+	}
+
 	private Direction getDirectionFromSide(EnumFacing side) {
 		if (side.getAxis().isVertical())
-			return Direction.values()[side.ordinal()];
+			return Direction.get(side.ordinal());
 		EnumFacing face = getBlockState().getValue(BlockDirectional.FACING);
 		if (face == EnumFacing.NORTH)
-			return Direction.values()[side.ordinal()];
+			return Direction.get(side.ordinal());
 		if (face == EnumFacing.SOUTH)
-			return Direction.values()[side.getOpposite().ordinal()];
+			return Direction.get(side.getOpposite().ordinal());
 		if (face == EnumFacing.EAST)
-			return Direction.values()[side.rotateYCCW().ordinal()];
+			return Direction.get(side.rotateYCCW().ordinal());
 		if (face == EnumFacing.WEST)
-			return Direction.values()[side.rotateY().ordinal()];
+			return Direction.get(side.rotateY().ordinal());
 		return null;
 	}
 
 	@Override
 	public int[] getSlotsForFace(EnumFacing side) {
-		if (getAmount(Upgrade.IO) == 0) {
-			switch (side) {
-			case DOWN:
-				return getOutputSlots();
-			case UP:
-				return getInputSlots();
-			default:
-				return getFuelSlots();
-			}
-		}
-		Direction dir = getDirectionFromSide(side);
-		int ret[] = new int[] {};
-		if (map.get("in").get(dir) != Mode.DISABLED)
-			ret = Ints.concat(ret, getInputSlots());
-		if (map.get("out").get(dir) != Mode.DISABLED)
-			ret = Ints.concat(ret, getOutputSlots());
-		if (map.get("fuel").get(dir) != Mode.DISABLED)
-			ret = Ints.concat(ret, getFuelSlots());
-		return ret;
+		validateFaces();
+		return faceSlots[side.ordinal()];
 	}
 
 	@Override
 	public boolean canInsertItem(int index, ItemStack itemStackIn, EnumFacing side) {
-		Direction dir = getDirectionFromSide(side);
-		if ((map.get("in").get(dir) != Mode.DISABLED && Ints.contains(getInputSlots(), index)) || (map.get("fuel").get(dir) != Mode.DISABLED && Ints.contains(getFuelSlots(), index)))
+		validateFaces();
+		if (contains(faceInMasks[side.ordinal()] | faceFuelMasks[side.ordinal()], index))
 			return isItemValidForSlot(index, itemStackIn);
 		return false;
 	}
 
 	@Override
 	public boolean canExtractItem(int index, ItemStack stack, EnumFacing side) {
-		Direction dir = getDirectionFromSide(side);
-		if ((map.get("out").get(dir) != Mode.DISABLED && Ints.contains(getOutputSlots(), index)) || (map.get("fuel").get(dir) != Mode.DISABLED && Ints.contains(getFuelSlots(), index) && !TileEntityFurnace.isItemFuel(stack)))
+		validateFaces();
+		if (contains(faceOutMasks[side.ordinal()], index) || (contains(faceFuelMasks[side.ordinal()], index) && !FuelCache.isFuel(stack)))
 			return true;
 		return false;
 	}
 
 	@Override
 	public boolean isItemValidForSlot(int index, ItemStack stack) {
-		if (stack.isEmpty() || Ints.contains(getOutputSlots(), index))
+		if (stack.isEmpty() || contains(getOutputMask(), index))
 			return false;
-		if (Ints.contains(getInputSlots(), index))
-			return !getResult(stack).isEmpty();
-		if (Ints.contains(getFuelSlots(), index))
-			return TileEntityFurnace.isItemFuel(stack);
-		return stack.getItem() == ModItems.upgrade && ContainerDevice.slotForUpgrade(index, Upgrade.values()[stack.getItemDamage()], this);
+		if (contains(getInputMask(), index))
+			return !getCachedResult(stack).isEmpty();
+		if (contains(fuelMask, index))
+			return FuelCache.isFuel(stack);
+		return stack.getItem() == ModItems.upgrade && ContainerDevice.slotForUpgrade(index, Upgrade.get(stack.getItemDamage()), this);
 	}
 
 	public abstract ItemStack getResult(ItemStack input);
 
+	protected ItemStack getResult(int slot) {
+		ItemStack input = getStackInSlot(slot);
+		if (input.isEmpty())
+			return ItemStack.EMPTY;
+		validateResults();
+		if (resultInputs[slot] != input) {
+			results[slot] = resolveResult(slot, input);
+			resultInputs[slot] = input;
+		}
+		return results[slot];
+	}
+
+	/** Fills the result memo of an input slot, subclasses may remember more of the recipe here. */
+	protected ItemStack resolveResult(int slot, ItemStack input) {
+		return getResult(input);
+	}
+
+	protected ItemStack getCachedResult(ItemStack stack) {
+		if (stack.isEmpty())
+			return ItemStack.EMPTY;
+		validateResults();
+		for (int i = 0; i < resultInputs.length; i++) {
+			ItemStack in = resultInputs[i];
+			if (in != null && in == getStackInSlot(i) && ItemStack.areItemsEqual(in, stack) && ItemStack.areItemStackTagsEqual(in, stack))
+				return results[i];
+		}
+		return getResult(stack);
+	}
+
 	@Override
 	public void update() {
-		output();
-		input();
+		DeviceProfiler.Stats prof = DeviceProfiler.enabled && !world.isRemote ? DeviceProfiler.get(this) : null;
+		long time = prof != null ? System.nanoTime() : 0L;
+		validateResults();
+		if (savedTime != 0) {
+			if (!world.isRemote && ModConfig.catchUpTicks > 0 && world.getTotalWorldTime() > savedTime)
+				catchUp(Math.min(world.getTotalWorldTime() - savedTime, ModConfig.catchUpTicks));
+			savedTime = 0;
+		}
+		TileDevice port = getIOPort();
+		if (sleeping && !world.isRemote) {
+			output(port);
+			input(port);
+			if (prof != null)
+				prof.endTick(time, true, 0);
+			return;
+		}
+		output(port);
+		if (prof != null)
+			time = prof.phase(Phase.OUTPUT, time);
+		input(port);
+		if (prof != null)
+			time = prof.phase(Phase.INPUT, time);
 		organizeItems();
+		if (prof != null)
+			time = prof.phase(Phase.ORGANIZE, time);
 		if (fuel > maxfuel)
 			maxfuel = fuel;
 		if (fuel < 0)
 			fuel = 0;
-		if (world.getTotalWorldTime() % 6 == 0 && !world.isRemote) {
-			if (fuel > 0) {
-				((CommonBlock) getBlockType()).changeProperty(world, pos, BlockLever.POWERED, true);
-			} else {
-				((CommonBlock) getBlockType()).changeProperty(world, pos, BlockLever.POWERED, false);
-			}
-		}
-		fuelUp();
+		if (!world.isRemote)
+			updateLit(fuel > 0 || energyActive, false);
+		boolean energyMode = isEnergyMode();
+		energyActive = false;
+		if (!energyMode)
+			fuelUp();
+		if (prof != null)
+			time = prof.phase(Phase.FUEL, time);
 		double tmp = fuel;
+		UpgradeSet stats = getUpgradeSet();
 		for (int j : getInputSlots())
-			burn(j);
+			burn(j, stats, energyMode);
+		if (prof != null)
+			time = prof.phase(Phase.BURN, time);
+		double burned = tmp - fuel;
 		double foo = lastTickFuelUsed;
 		lastTickFuelUsed = tmp - fuel;
 		if (lastTickFuelUsed == 0. && getAmount(Upgrade.ECO) > 0)
 			lastTickFuelUsed = foo;
+		if (!world.isRemote && canSleep()) {
+			updateLit(fuel > 0 || energyActive, true);
+			sleeping = true;
+		}
+		if (prof != null)
+			prof.endTick(time, false, burned);
+	}
+
+	private boolean lit, litKnown;
+	private int unlitTicks;
+
+	private void updateLit(boolean burning, boolean force) {
+		if (!litKnown) {
+			lit = getBlockState().getValue(BlockLever.POWERED);
+			litKnown = true;
+		}
+		if (burning)
+			unlitTicks = 0;
+		if (burning == lit || (!burning && !force && ++unlitTicks <= ModConfig.litHysteresis))
+			return;
+		lit = burning;
+		unlitTicks = 0;
+		((CommonBlock) getBlockType()).changeProperty(world, pos, BlockLever.POWERED, burning);
+	}
+
+	public static final int WORK_PER_TICK = 1000;
+
+	public int operationWork() {
+		return getUpgradeSet().work;
 	}
 
 	public int neededTicks() {
-		int val = this instanceof TileFurnus ? 140 : 180;
-		val /= (1. + getAmount(Upgrade.SPEED) * ModConfig.speedMultiplier);
-		return Math.max(val, 5);
+		return (int) Math.ceil(getUpgradeSet().neededTicks);
 	}
 
 	public double fuelMultiplier() {
-		double x = (1. + getAmount(Upgrade.SPEED) * ModConfig.speedFuelMultiplier) * (1. / (1. + getAmount(Upgrade.EFFICIENCY) * ModConfig.effiFuelMultiplier));
-		return x;
+		return getUpgradeSet().fuelMultiplier;
+	}
+
+	/** Powered by energy per operation step, solid fuel is only used while slots hold any. An array member whose own buffer ran dry refuels from the array instead. */
+	public boolean isEnergyMode() {
+		if (getAmount(Upgrade.ENERGY) == 0 || !getStackInSlot(fuelSlots[0]).isEmpty() || !getStackInSlot(fuelSlots[1]).isEmpty())
+			return false;
+		return getArray() == null || energy.getEnergyStored() >= getUpgradeSet().fuelPerTick * ModConfig.energyPerFuel;
 	}
 
-	private void burn(int i) {
-		double neededFuel = 1.;
-		neededFuel *= fuelMultiplier();
-		neededFuel /= neededTicks() / 200.;
-		boolean processed = false;
+	private boolean drawEnergy(double neededFuel) {
+		double cost = neededFuel * ModConfig.energyPerFuel + energyRemainder;
+		int rf = (int) cost;
+		if (energy.extractEnergy(rf, true) < rf)
+			return false;
+		energy.extractEnergy(rf, false);
+		energyRemainder = cost - rf;
+		energyActive = true;
+		return true;
+	}
+
+	private void burn(int i, UpgradeSet stats, boolean energyMode) {
+		int work = stats.work, step = stats.step;
+		double neededFuel = stats.fuelPerTick;
+		boolean processed = false, fromEnergy = false;
 		if (!canProcess(i)) {
-			progress.put(i, 0);
+			progress[i] = 0;
 		} else {
-			if (fuel >= neededFuel) {
-				int progres = progress.get(i) + 1;
-				progress.put(i, progres);
+			if (fuel >= neededFuel || (fromEnergy = energyMode && drawEnergy(neededFuel - fuel))) {
+				int progres = progress[i] + step;
 				processed = true;
-				if (progres >= neededTicks()) {
-					processItem(i);
-					progress.put(i, 0);
-					if (!activePlayers.isEmpty())
-						markForSync();
+				if (progres >= work) {
+					int operations = Math.min(progres / work, ModConfig.maxBatchSize);
+					progres = Math.min(progres - processItem(i, operations) * work, ModConfig.maxBatchSize * work);
 				}
-			} else if (getAmount(Upgrade.ECO) == 0) {
-				progress.put(i, 0);
+				progress[i] = progres;
+			} else if (stats.getAmount(Upgrade.ECO) == 0) {
+				progress[i] = 0;
 			}
 		}
-		if (processed || getAmount(Upgrade.ECO) == 0)
+		if (fromEnergy)
+			fuel = 0;
+		else if (processed || stats.getAmount(Upgrade.ECO) == 0)
 			fuel -= Math.min(neededFuel, fuel);
 	}
 
-	protected void processItem(int slot) {
-		if (world.isRemote)
-			return;
-		ItemStack itemstack = getResult(getStackInSlot(slot));
-		if (itemstack.isEmpty())
+	/** Applies the operations the device would have completed while its chunk was not loaded. */
+	private void catchUp(long ticks) {
+		UpgradeSet stats = getUpgradeSet();
+		int active = 0;
+		for (int i : getInputSlots())
+			if (canProcess(i))
+				active++;
+		if (active == 0)
 			return;
-		if (getStackInSlot(slot + 3).isEmpty()) {
-			setInventorySlotContents(slot + 3, itemstack.copy());
-		} else if (ItemHandlerHelper.canItemStacksStack(getStackInSlot(slot + 3), itemstack)) {
-			getStackInSlot(slot + 3).grow(itemstack.getCount());
+		double share = (fuel + getFuelSupply(stats)) / active, used = 0;
+		for (int i : getInputSlots()) {
+			if (!canProcess(i))
+				continue;
+			int space = getOutputSpace(i, getResult(i));
+			long byTime = (progress[i] + ticks * stats.step) / stats.work;
+			long byFuel = (long) ((share / stats.fuelPerTick * stats.step + progress[i]) / stats.work);
+			int operations = (int) Math.min(Math.min(byTime, byFuel), Math.min(space, getStackInSlot(i).getCount()));
+			if (operations <= 0 || (operations = processItem(i, operations)) <= 0)
+				continue;
+			long steps = ((long) operations * stats.work - progress[i] + stats.step - 1) / stats.step;
+			progress[i] = (int) (progress[i] + steps * stats.step - (long) operations * stats.work);
+			used += steps * stats.fuelPerTick;
 		}
-		getStackInSlot(slot).shrink(1);
+		consumeFuel(used, stats);
+	}
+
+	private double getFuelSupply(UpgradeSet stats) {
+		double supply = 0;
+		for (int slot : fuelSlots) {
+			ItemStack stack = getStackInSlot(slot);
+			int burntime = FuelCache.getBurnTime(stack);
+			if (burntime > 0)
+				supply += burntime * (stack.getItem().getContainerItem(stack).isEmpty() ? stack.getCount() : 1);
+		}
+		if (stats.getAmount(Upgrade.ENERGY) > 0)
+			supply += energy.getEnergyStored() / (double) ModConfig.energyPerFuel;
+		return supply;
+	}
+
+	private void consumeFuel(double needed, UpgradeSet stats) {
+		for (int slot : fuelSlots)
+			while (fuel < needed) {
+				ItemStack stack = getStackInSlot(slot);
+				int burntime = FuelCache.getBurnTime(stack);
+				if (burntime <= 0)
+					break;
+				if (stack.getItem().getContainerItem(stack).isEmpty())
+					decrStackSize(slot, 1);
+				else
+					setInventorySlotContents(slot, stack.getItem().getContainerItem(stack));
+				fuel += burntime;
+			}
+		if (fuel < needed && stats.getAmount(Upgrade.ENERGY) > 0)
+			fuel += energy.extractEnergy((int) Math.ceil((needed - fuel) * ModConfig.energyPerFuel), false) / (double) ModConfig.energyPerFuel;
+		fuel = Math.max(0, fuel - needed);
+		maxfuel = Math.max(maxfuel, fuel);
+	}
+
+	/** Completes up to count operations of the input slot as far as input and output space allow, returns how many were completed. */
+	protected int processItem(int slot, int count) {
+		if (world.isRemote)
+			return 0;
+		ItemStack itemstack = getResult(slot);
+		if (itemstack.isEmpty())
+			return 0;
+		count = Math.min(count, Math.min(getOutputSpace(slot, itemstack), getStackInSlot(slot).getCount()));
+		if (count <= 0)
+			return 0;
+		ItemStack output = getStackInSlot(slot + 3);
+		if (output.isEmpty())
+			setInventorySlotContents(slot + 3, ItemHandlerHelper.copyStackWithSize(itemstack, itemstack.getCount() * count));
+		else
+			output.grow(itemstack.getCount() * count);
+		float xp = getExperience(slot, itemstack);
+		getStackInSlot(slot).shrink(count);
+		processByproducts(slot, count);
+		if (xp > 0)
+			storedXp = (int) Math.min(Integer.MAX_VALUE, storedXp + Math.round(xp * getUpgradeSet().xpMultiplier * count * XP_SCALE));
+		if (DeviceProfiler.enabled)
+			DeviceProfiler.get(this).processed(count);
+		return count;
+	}
+
+	/** How many results of the input slot still fit into its output slot. */
+	private int getOutputSpace(int slot, ItemStack result) {
+		ItemStack output = getStackInSlot(slot + 3);
+		if (output.isEmpty())
+			return Math.min(getInventoryStackLimit(), result.getMaxStackSize()) / result.getCount();
+		if (!ItemHandlerHelper.canItemStacksStack(output, result))
+			return 0;
+		return (Math.min(getInventoryStackLimit(), output.getMaxStackSize()) - output.getCount()) / result.getCount();
+	}
+
+	protected void processByproducts(int slot, int count) {
+	}
+
+	/** Experience of one operation of the input slot, called with its result before the input is consumed. */
+	protected abstract float getExperience(int slot, ItemStack result);
+
+	/** Whether fuelUp or energy mode could still supply fuel, through the array if there is one. */
+	private boolean canRefuel() {
+		DeviceArray array = getArray();
+		return (array != null ? array.fuelSource(this) : this).hasFuelSupply();
+	}
+
+	boolean hasFuelSupply() {
+		return FuelCache.isFuel(getStackInSlot(fuelSlots[0])) || FuelCache.isFuel(getStackInSlot(fuelSlots[1])) || energy.getEnergyStored() > 0;
 	}
 
 	private void fuelUp() {
@@ -349,28 +772,30 @@ public abstract class TileDevice extends CommonTileInventory implements ITickabl
 		//			return;
 		//		}
 		int slot0 = getFuelSlots()[0], slot1 = getFuelSlots()[1];
-		if (getStackInSlot(slot0).isEmpty() && TileEntityFurnace.isItemFuel(getStackInSlot(slot1)))
+		if (getStackInSlot(slot0).isEmpty() && FuelCache.isFuel(getStackInSlot(slot1)))
 			setInventorySlotContents(slot0, removeStackFromSlot(slot1));
 		if (!canProcessAny() || fuel > lastTickFuelUsed + 2)
 			return;
-		ItemStack stack0 = getStackInSlot(slot0);
-		int burntime = TileEntityFurnace.getItemBurnTime(stack0);
+		DeviceArray array = getArray();
+		TileDevice source = array != null ? array.fuelSource(this) : this;
+		if (source != this && source.getStackInSlot(slot0).isEmpty() && FuelCache.isFuel(source.getStackInSlot(slot1)))
+			source.setInventorySlotContents(slot0, source.removeStackFromSlot(slot1));
+		ItemStack stack0 = source.getStackInSlot(slot0);
+		int burntime = FuelCache.getBurnTime(stack0);
 		if (burntime > 0) {
 			if (stack0.getItem().getContainerItem(stack0).isEmpty())
-				decrStackSize(slot0, 1);
+				source.decrStackSize(slot0, 1);
 			else
-				setInventorySlotContents(slot0, stack0.getItem().getContainerItem(stack0));
+				source.setInventorySlotContents(slot0, stack0.getItem().getContainerItem(stack0));
 		} else {
-			int fac = 25;
+			int fac = ModConfig.energyPerFuel;
 			int consume = 1600 * fac;
-			burntime = (int) (energy.extractEnergy(consume, false) / (double) fac);
+			burntime = (int) (source.energy.extractEnergy(consume, false) / (double) fac);
 		}
 		if (burntime > 0) {
 			//			burntime *= (neededTicks() / 200.) + .001;
 			fuel += burntime;
 			maxfuel = fuel;
-			if (!activePlayers.isEmpty())
-				markForSync();
 		}
 	}
 
@@ -378,7 +803,7 @@ public abstract class TileDevice extends CommonTileInventory implements ITickabl
 		if (getStackInSlot(slot).isEmpty()) {
 			return false;
 		} else {
-			ItemStack itemstack = getResult(getStackInSlot(slot));
+			ItemStack itemstack = getResult(slot);
 			if (itemstack.isEmpty())
 				return false;
 			if (getStackInSlot(slot + 3).isEmpty())
@@ -394,19 +819,119 @@ public abstract class TileDevice extends CommonTileInventory implements ITickabl
 		return Arrays.stream(getInputSlots()).anyMatch(i -> canProcess(i));
 	}
 
-	private void output() {
-		if (!world.isRemote && getAmount(Upgrade.IO) > 0 && world.getTotalWorldTime() % 10 == 0) {
-			for (String s : new String[] { "out", "fuel" }) {
-				Map<Direction, Mode> m = map.get(s);
+	private static final Channel[] outputChannels = { Channel.OUT, Channel.FUEL }, inputChannels = { Channel.IN, Channel.FUEL };
+
+	private final IItemHandler[] neighborHandlers = new IItemHandler[6], selfHandlers = new IItemHandler[6];
+	private final TileEntity[] neighborTiles = new TileEntity[6];
+	private final long[] neighborChecks = new long[6];
+	private final Predicate<ItemStack> inputFilter = st -> isItemValidForSlot(0, st), fuelFilter = st -> isItemValidForSlot(6, st);
+
+	private DeviceArray getArray() {
+		if (!ModConfig.arrays || world.isRemote)
+			return null;
+		if (array == null || !array.isValid())
+			array = DeviceArray.form(this);
+		return array;
+	}
+
+	@Override
+	public void invalidate() {
+		super.invalidate();
+		if (array != null)
+			array.dissolve();
+	}
+
+	@Override
+	public void onChunkUnload() {
+		super.onChunkUnload();
+		if (array != null)
+			array.dissolve();
+	}
+
+	public void onNeighborChanged(BlockPos neighbor) {
+		if (array != null) {
+			TileEntity tile = world.getTileEntity(neighbor);
+			boolean device = tile != null && tile.getClass() == getClass() && !tile.isInvalid();
+			if (device != array.positions.contains(neighbor) && !(device && array.isFull()))
+				array.dissolve();
+		}
+		for (EnumFacing face : EnumFacing.VALUES)
+			if (pos.getX() + face.getFrontOffsetX() == neighbor.getX() && pos.getY() + face.getFrontOffsetY() == neighbor.getY() && pos.getZ() + face.getFrontOffsetZ() == neighbor.getZ()) {
+				neighborHandlers[face.ordinal()] = null;
+				neighborTiles[face.ordinal()] = null;
+				neighborChecks[face.ordinal()] = 0;
+			}
+		wakeUp();
+	}
+
+	private IItemHandler getNeighborHandler(EnumFacing face) {
+		int i = face.ordinal();
+		BlockPos neighbor = pos.offset(face);
+		if (!world.isBlockLoaded(neighbor)) {
+			neighborHandlers[i] = null;
+			neighborTiles[i] = null;
+			neighborChecks[i] = 0;
+			return null;
+		}
+		TileEntity tile = neighborTiles[i];
+		if (tile != null && !tile.isInvalid() && world.getTileEntity(neighbor) == tile)
+			return neighborHandlers[i];
+		if (tile == null && neighborChecks[i] != 0 && world.getTotalWorldTime() - neighborChecks[i] < 100)
+			return null;
+		IItemHandler handler = InvHelper.getItemHandler(world, neighbor, face.getOpposite());
+		tile = handler != null ? world.getTileEntity(neighbor) : null;
+		neighborHandlers[i] = tile != null ? handler : null;
+		neighborTiles[i] = tile;
+		neighborChecks[i] = handler == null ? world.getTotalWorldTime() : 0;
+		return handler;
+	}
+
+	private IItemHandler getSelfHandler(EnumFacing face) {
+		int i = face.ordinal();
+		if (selfHandlers[i] == null)
+			selfHandlers[i] = InvHelper.getItemHandler(world, pos, face);
+		return selfHandlers[i];
+	}
+
+	private int phase = -1;
+
+	/** Periodic work runs on ticks offset by a position derived phase, so devices don't all do it on the same tick. */
+	private boolean isPhaseTick(int interval) {
+		if (phase < 0)
+			phase = (int) (pos.toLong() * 0x9E3779B97F4A7C15L >>> 33);
+		return (world.getTotalWorldTime() + phase) % interval == 0;
+	}
+
+	/** The device whose neighbors are served on this tick, null if there is no IO this tick. */
+	private TileDevice getIOPort() {
+		if (world.isRemote || !isPhaseTick(ModConfig.ioInterval))
+			return null;
+		DeviceArray array = getArray();
+		TileDevice port = array == null ? this : array.master == this ? array.nextPort() : null;
+		return port != null && !port.isInvalid() && port.getAmount(Upgrade.IO) > 0 ? port : null;
+	}
+
+	/** The devices the port serves, only those with an IO upgrade are filled or emptied. */
+	private List<TileDevice> getIOMembers() {
+		return array != null ? array.members : self;
+	}
+
+	private void output(TileDevice port) {
+		if (port != null) {
+			port.validateFaces();
+			for (Channel c : outputChannels) {
 				for (EnumFacing face : EnumFacing.VALUES) {
-					Direction dir = getDirectionFromSide(face);
-					if (m.get(dir) != Mode.AUTO)
+					Direction dir = port.faceDirections[face.ordinal()];
+					if (!port.sides.isAuto(c, dir))
 						continue;
-					IItemHandler handler = InvHelper.getItemHandler(world, pos.offset(face), face.getOpposite());
+					IItemHandler handler = port.getNeighborHandler(face);
 					if (handler == null)
 						continue;
-					IItemHandler that = InvHelper.getItemHandler(world, pos, face);
-					if (InvHelper.transfer(that, handler, 2 + getAmount(Upgrade.SLOT) * 2, Predicates.alwaysTrue()))
+					boolean moved = false;
+					for (TileDevice t : getIOMembers())
+						if (t.getAmount(Upgrade.IO) > 0)
+							moved |= InvHelper.transfer(t.getSelfHandler(face), handler, t.getUpgradeSet().ioBatch, Predicates.alwaysTrue());
+					if (moved)
 						break;
 
 				}
@@ -414,24 +939,22 @@ public abstract class TileDevice extends CommonTileInventory implements ITickabl
 		}
 	}
 
-	private void input() {
-		if (!world.isRemote && getAmount(Upgrade.IO) > 0 && world.getTotalWorldTime() % 10 == 0) {
-			for (String s : new String[] { "in", "fuel" }) {
-				Map<Direction, Mode> m = map.get(s);
+	private void input(TileDevice port) {
+		if (port != null) {
+			port.validateFaces();
+			for (Channel c : inputChannels) {
 				for (EnumFacing face : EnumFacing.VALUES) {
-					Direction dir = getDirectionFromSide(face);
-					if (m.get(dir) != Mode.AUTO)
+					Direction dir = port.faceDirections[face.ordinal()];
+					if (!port.sides.isAuto(c, dir))
 						continue;
-					IItemHandler handler = InvHelper.getItemHandler(world, pos.offset(face), face.getOpposite());
+					IItemHandler handler = port.getNeighborHandler(face);
 					if (handler == null)
 						continue;
-					IItemHandler that = InvHelper.getItemHandler(world, pos, face);
-					Predicate<ItemStack> pred = Predicates.alwaysTrue();
-					if (s.equals("fuel"))
-						pred = st -> isItemValidForSlot(6, st);
-					else
-						pred = st -> isItemValidForSlot(0, st);
-					if (InvHelper.transfer(handler, that, s.equals("fuel") ? 1 : 2 + getAmount(Upgrade.SLOT) * 2, pred))
+					boolean moved = false;
+					for (TileDevice t : getIOMembers())
+						if (t.getAmount(Upgrade.IO) > 0)
+							moved |= c == Channel.FUEL ? InvHelper.transfer(handler, t.getSelfHandler(face), t.getUpgradeSet().ioFuelBatch, t.fuelFilter) : InvHelper.transfer(handler, t.getSelfHandler(face), t.getUpgradeSet().ioBatch, t.inputFilter);
+					if (moved)
 						break;
 
 				}
@@ -440,7 +963,7 @@ public abstract class TileDevice extends CommonTileInventory implements ITickabl
 	}
 
 	private void organizeItems() {
-		if (world.isRemote || getAmount(Upgrade.SLOT) == 0 || world.getTotalWorldTime() % 8 != 0)
+		if (world.isRemote || getAmount(Upgrade.SLOT) == 0 || !isPhaseTick(ModConfig.organizeInterval))
 			return;
 		if (split) {
 			for (int i : getInputSlots()) {
@@ -482,18 +1005,23 @@ public abstract class TileDevice extends CommonTileInventory implements ITickabl
 	}
 
 	protected boolean fit(ItemStack stack, int slot) {
-		ItemStack result = getResult(stack);
+		ItemStack result = getCachedResult(stack);
 		return getStackInSlot(slot + 3).isEmpty() || (ItemHandlerHelper.canItemStacksStack(result, getStackInSlot(slot + 3)) && getStackInSlot(slot + 3).getCount() + result.getCount() <= getStackInSlot(slot + 3).getMaxStackSize());
 	}
 
 	@Override
 	public void handleMessage(EntityPlayer player, NBTTagCompound nbt) {
+		wakeUp();
 		int id = nbt.getInteger("id");
 		if (id == 0)
 			split ^= true;
+		else if (id == 4)
+			dropExperience(player);
 		else {
 			int ID = nbt.getInteger("id") - 10;
-			map.get(nbt.getString("win")).put(Direction.values()[ID], map.get(nbt.getString("win")).get(Direction.values()[ID]).next());
+			Channel c = Channel.byKey(nbt.getString("win"));
+			if (c != null)
+				sides.cycle(c, Direction.get(ID));
 		}
 	}
 
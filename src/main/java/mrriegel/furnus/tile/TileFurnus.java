@@ -10,4 +10,9 @@ public class TileFurnus extends TileDevice {
 		return FurnaceRecipes.instance().getSmeltingResult(input);
 	}
 
+	@Override
+	protected float getExperience(int slot, ItemStack result) {
+		return FurnaceRecipes.instance().getSmeltingExperience(result);
+	}
+
 }
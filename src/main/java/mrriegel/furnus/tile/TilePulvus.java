@@ -1,13 +1,65 @@
 package mrriegel.furnus.tile;
 
 import mrriegel.furnus.util.CrushHandler;
+import mrriegel.furnus.util.CrushHandler.Recipe;
 import net.minecraft.item.ItemStack;
+import net.minecraftforge.items.ItemHandlerHelper;
 
 public class TilePulvus extends TileDevice {
 
+	private static final int[][] outputSlots = { { 3, BYPRODUCT_SLOT }, { 3, 4, BYPRODUCT_SLOT }, { 3, 4, 5, BYPRODUCT_SLOT } };
+	private final Recipe[] recipes = new Recipe[3];
+
+	@Override
+	public int[] getOutputSlots() {
+		return outputSlots[getUpgradeSet().lanes - 1];
+	}
+
+	@Override
+	protected int getOutputMask() {
+		return super.getOutputMask() | 1 << BYPRODUCT_SLOT;
+	}
+
 	@Override
 	public ItemStack getResult(ItemStack input) {
 		return CrushHandler.instance().getResult(input);
 	}
 
+	@Override
+	protected ItemStack resolveResult(int slot, ItemStack input) {
+		Recipe recipe = CrushHandler.instance().getRecipe(input);
+		recipes[slot] = recipe;
+		return recipe != null ? recipe.getOutput() : ItemStack.EMPTY;
+	}
+
+	@Override
+	protected float getExperience(int slot, ItemStack result) {
+		return recipes[slot] != null ? recipes[slot].getExperience() : 0f;
+	}
+
+	@Override
+	protected void processByproducts(int slot, int count) {
+		Recipe recipe = recipes[slot];
+		if (recipe == null)
+			return;
+		for (int i = 0; i < recipe.getByproductCount(); i++) {
+			float chance = recipe.getChance(i);
+			int hits = 0;
+			for (int j = 0; j < count; j++)
+				if (chance >= 1f || world.rand.nextFloat() < chance)
+					hits++;
+			if (hits > 0)
+				addByproduct(recipe.getByproduct(i), hits);
+		}
+	}
+
+	/** The buffer never blocks the main output, byproducts that do not fit into it are voided. */
+	private void addByproduct(ItemStack stack, int count) {
+		ItemStack buffer = getStackInSlot(BYPRODUCT_SLOT);
+		if (buffer.isEmpty())
+			setInventorySlotContents(BYPRODUCT_SLOT, ItemHandlerHelper.copyStackWithSize(stack, Math.min(stack.getCount() * count, stack.getMaxStackSize())));
+		else if (ItemHandlerHelper.canItemStacksStack(buffer, stack))
+			buffer.setCount(Math.min(buffer.getCount() + stack.getCount() * count, buffer.getMaxStackSize()));
+	}
+
 }
@@ -0,0 +1,91 @@
+package mrriegel.furnus.util;
+
+import java.util.Collections;
+import java.util.List;
+
+import mrriegel.furnus.init.ModConfig;
+import mrriegel.furnus.tile.DeviceProfiler;
+import mrriegel.furnus.tile.DeviceProfiler.Phase;
+import mrriegel.furnus.tile.DeviceProfiler.Stats;
+import mrriegel.furnus.tile.TileDevice;
+import net.minecraft.command.CommandBase;
+import net.minecraft.command.CommandException;
+import net.minecraft.command.ICommandSender;
+import net.minecraft.command.WrongUsageException;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.text.TextComponentString;
+
+public class CommandFurnus extends CommandBase {
+
+	@Override
+	public String getName() {
+		return "furnus";
+	}
+
+	@Override
+	public String getUsage(ICommandSender sender) {
+		return "/furnus stats [count] | /furnus profile <on|off|reset> | /furnus reload";
+	}
+
+	@Override
+	public int getRequiredPermissionLevel() {
+		return 2;
+	}
+
+	@Override
+	public void execute(MinecraftServer server, ICommandSender sender, String[] args) throws CommandException {
+		if (args.length == 0)
+			throw new WrongUsageException(getUsage(sender));
+		if (args[0].equals("stats")) {
+			if (!DeviceProfiler.enabled) {
+				sender.sendMessage(new TextComponentString("Profiling is disabled, use /furnus profile on"));
+				return;
+			}
+			List<Stats> top = DeviceProfiler.getTop(args.length > 1 ? parseInt(args[1], 1, 100) : 10);
+			if (top.isEmpty())
+				sender.sendMessage(new TextComponentString("No devices recorded yet"));
+			for (int i = 0; i < top.size(); i++) {
+				Stats s = top.get(i);
+				sender.sendMessage(new TextComponentString(String.format("#%d %s at %d, %d, %d (dim %d): %.1f µs/t, %.0f%% idle, %d items, %.0f fuel", //
+						i + 1, s.name, s.pos.getX(), s.pos.getY(), s.pos.getZ(), s.dimension, s.getAverageNanos() / 1000., s.getIdleRatio() * 100., s.getItems(), s.getFuel())));
+				StringBuilder phases = new StringBuilder("   ");
+				for (Phase p : Phase.values())
+					phases.append(String.format(" %s %.1f µs", p.name().toLowerCase(), s.getAveragePhaseNanos(p) / 1000.));
+				sender.sendMessage(new TextComponentString(phases.toString()));
+			}
+		} else if (args[0].equals("profile") && args.length > 1) {
+			if (args[1].equals("on"))
+				DeviceProfiler.setEnabled(true);
+			else if (args[1].equals("off"))
+				DeviceProfiler.setEnabled(false);
+			else if (args[1].equals("reset"))
+				DeviceProfiler.reset();
+			else
+				throw new WrongUsageException(getUsage(sender));
+			sender.sendMessage(new TextComponentString("Furnus profiling " + (DeviceProfiler.enabled ? "enabled" : "disabled")));
+		} else if (args[0].equals("reload")) {
+			try {
+				List<CrushRecipe> recipes = ModConfig.readRecipes(ModConfig.recipeFile, true);
+				CrushHandler.rebuild(b -> CrushRecipe.registerAll(b, recipes));
+				ModConfig.recipes = recipes;
+			} catch (RuntimeException e) {
+				throw new CommandException("Pulvus recipes not reloaded: " + e.getMessage());
+			}
+			TileDevice.invalidateRecipeCaches();
+			FuelCache.invalidate();
+			sender.sendMessage(new TextComponentString("Reloaded " + ModConfig.recipes.size() + " pulvus recipes from " + ModConfig.recipeFile.getName()));
+		} else
+			throw new WrongUsageException(getUsage(sender));
+	}
+
+	@Override
+	public List<String> getTabCompletions(MinecraftServer server, ICommandSender sender, String[] args, BlockPos targetPos) {
+		if (args.length == 1)
+			return getListOfStringsMatchingLastWord(args, "stats", "profile", "reload");
+		if (args.length == 2 && args[0].equals("profile"))
+			return getListOfStringsMatchingLastWord(args, "on", "off", "reset");
+		return Collections.emptyList();
+	}
+
+}
@@ -1,50 +1,178 @@
 package mrriegel.furnus.util;
 
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.function.Consumer;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
 
+import net.minecraft.item.Item;
 import net.minecraft.item.ItemStack;
+import net.minecraft.util.IntHashMap;
 import net.minecraftforge.oredict.OreDictionary;
 
-public class CrushHandler {
-	private static final CrushHandler base = new CrushHandler();
-	public Map<ItemStack, ItemStack> crushingList = Maps.newHashMap();
-	private Map<ItemStack, Float> experienceList = Maps.newHashMap();
+/** Immutable snapshot of all pulvus recipes, safe to read from any thread. */
+public final class CrushHandler {
+	private static volatile CrushHandler base = new Builder().build();
+	private final ImmutableList<Recipe> recipes;
+	private final Index<Recipe> byInput;
 
 	public static CrushHandler instance() {
 		return base;
 	}
 
-	private CrushHandler() {
+	/** Builds a new snapshot and publishes it, the current one stays active if the registration throws. */
+	public static synchronized CrushHandler rebuild(Consumer<Builder> registration) {
+		Builder builder = new Builder();
+		registration.accept(builder);
+		return base = builder.build();
 	}
 
-	public ItemStack getResult(ItemStack stack) {
-		for (Entry<ItemStack, ItemStack> entry : crushingList.entrySet()) {
-			ItemStack in = entry.getKey().copy();
-			if (in.isItemEqual(stack) || (in.getItem() == stack.getItem() && in.getItemDamage() == OreDictionary.WILDCARD_VALUE))
-				return entry.getValue().copy();
+	private CrushHandler(Builder builder) {
+		recipes = builder.recipes.build();
+		byInput = builder.byInput.freeze();
+	}
+
+	public ImmutableList<Recipe> getRecipes() {
+		return recipes;
+	}
+
+	public Recipe getRecipe(ItemStack input) {
+		return byInput.get(input);
+	}
+
+	/** The returned stack is shared, copy it before modifying. */
+	public ItemStack getResult(ItemStack input) {
+		Recipe recipe = byInput.get(input);
+		return recipe != null ? recipe.output : ItemStack.EMPTY;
+	}
+
+	public float getExperience(ItemStack input) {
+		Recipe recipe = byInput.get(input);
+		return recipe != null ? recipe.experience : 0f;
+	}
+
+	public static final class Recipe {
+		private static final ItemStack[] NO_STACKS = {};
+		private static final float[] NO_CHANCES = {};
+		private final ItemStack input, output;
+		private final float experience;
+		private final ItemStack[] byproducts;
+		private final float[] chances;
+
+		private Recipe(ItemStack input, ItemStack output, float experience, ItemStack[] byproducts, float[] chances) {
+			this.input = input;
+			this.output = output;
+			this.experience = experience;
+			this.byproducts = byproducts;
+			this.chances = chances;
+		}
+
+		/** The returned stack is shared, copy it before modifying. */
+		public ItemStack getInput() {
+			return input;
+		}
+
+		/** The returned stack is shared, copy it before modifying. */
+		public ItemStack getOutput() {
+			return output;
+		}
+
+		public float getExperience() {
+			return experience;
+		}
+
+		public int getByproductCount() {
+			return byproducts.length;
+		}
+
+		/** The returned stack is shared, copy it before modifying. */
+		public ItemStack getByproduct(int index) {
+			return byproducts[index];
+		}
+
+		public float getChance(int index) {
+			return chances[index];
 		}
-		return ItemStack.EMPTY;
 	}
 
-	public float getExperience(ItemStack stack) {
-		for (Entry<ItemStack, Float> entry : experienceList.entrySet()) {
-			ItemStack in = entry.getKey().copy();
-			if (in.isItemEqual(stack) || (in.getItem() == stack.getItem() && in.getItemDamage() == OreDictionary.WILDCARD_VALUE))
-				return entry.getValue();
+	public static class Builder {
+		private final ImmutableList.Builder<Recipe> recipes = ImmutableList.builder();
+		private final Index<Recipe> byInput = new Index<>();
+
+		private Builder() {
+		}
+
+		public Builder add(ItemStack in, ItemStack out, float exp) {
+			return add(in, out, exp, Recipe.NO_STACKS, Recipe.NO_CHANCES);
+		}
+
+		/** Byproducts are rolled per operation, each with the chance at the same index. */
+		public Builder add(ItemStack in, ItemStack out, float exp, ItemStack[] byproducts, float[] chances) {
+			if (in.isEmpty() || out.isEmpty() || byInput.containsExact(in))
+				return this;
+			if (byproducts.length != chances.length)
+				throw new IllegalArgumentException("Every byproduct needs a chance");
+			ItemStack[] stacks = byproducts.length == 0 ? Recipe.NO_STACKS : new ItemStack[byproducts.length];
+			for (int i = 0; i < stacks.length; i++)
+				stacks[i] = byproducts[i].copy();
+			Recipe recipe = new Recipe(in.copy(), out.copy(), exp, stacks, chances.length == 0 ? Recipe.NO_CHANCES : chances.clone());
+			recipes.add(recipe);
+			byInput.put(recipe.input, recipe);
+			return this;
+		}
+
+		private CrushHandler build() {
+			return new CrushHandler(this);
 		}
-		return 0f;
 	}
 
-	public void addItemStack(ItemStack in, ItemStack out, float exp) {
-		if (in.isEmpty() || out.isEmpty())
-			return;
-		for (ItemStack stack : crushingList.keySet())
-			if (in.isItemEqual(stack))
-				return;
-		this.crushingList.put(in.copy(), out);
-		this.experienceList.put(out.copy(), exp);
+	private static class Index<V> {
+		private final Map<Item, IntHashMap<V>> exact;
+		private final Map<Item, V> wildcard;
+
+		Index() {
+			this(Maps.newHashMap(), Maps.newHashMap());
+		}
+
+		private Index(Map<Item, IntHashMap<V>> exact, Map<Item, V> wildcard) {
+			this.exact = exact;
+			this.wildcard = wildcard;
+		}
+
+		Index<V> freeze() {
+			return new Index<>(ImmutableMap.copyOf(exact), ImmutableMap.copyOf(wildcard));
+		}
+
+		V get(ItemStack stack) {
+			if (stack.isEmpty())
+				return null;
+			Item item = stack.getItem();
+			IntHashMap<V> metas = exact.get(item);
+			if (metas != null) {
+				V val = metas.lookup(stack.getItemDamage());
+				if (val != null)
+					return val;
+			}
+			return wildcard.get(item);
+		}
+
+		boolean containsExact(ItemStack stack) {
+			if (stack.getItemDamage() == OreDictionary.WILDCARD_VALUE)
+				return wildcard.containsKey(stack.getItem());
+			IntHashMap<V> metas = exact.get(stack.getItem());
+			return metas != null && metas.containsItem(stack.getItemDamage());
+		}
+
+		void put(ItemStack stack, V val) {
+			if (stack.getItemDamage() == OreDictionary.WILDCARD_VALUE)
+				wildcard.putIfAbsent(stack.getItem(), val);
+			else {
+				IntHashMap<V> metas = exact.computeIfAbsent(stack.getItem(), i -> new IntHashMap<>());
+				if (!metas.containsItem(stack.getItemDamage()))
+					metas.addKey(stack.getItemDamage(), val);
+			}
+		}
 	}
-}
\ No newline at end of file
+}
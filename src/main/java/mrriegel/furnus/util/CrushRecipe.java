@@ -1,82 +1,143 @@
 package mrriegel.furnus.util;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.StringUtils;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.primitives.Floats;
 
+import mrriegel.furnus.Furnus;
 import mrriegel.furnus.init.ModConfig;
 import mrriegel.limelib.gui.ContainerNull;
 import net.minecraft.inventory.InventoryCrafting;
 import net.minecraft.item.Item;
 import net.minecraft.item.ItemStack;
 import net.minecraft.item.crafting.CraftingManager;
+import net.minecraft.item.crafting.IRecipe;
+import net.minecraft.nbt.CompressedStreamTools;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagList;
 import net.minecraft.util.ResourceLocation;
+import net.minecraftforge.fml.common.Loader;
+import net.minecraftforge.fml.common.ModContainer;
 import net.minecraftforge.fml.common.registry.ForgeRegistries;
 import net.minecraftforge.items.ItemHandlerHelper;
 import net.minecraftforge.oredict.OreDictionary;
 
 public class CrushRecipe {
-	String inputItem, outputItem;
-	float experience;
+	private static final Pattern META = Pattern.compile("/(-?\\d+)"), AMOUNT = Pattern.compile("#(\\d+)");
 
-	public CrushRecipe(String in, String out, float exp) {
+	final String inputItem, outputItem;
+	final float experience;
+	final Byproduct[] byproducts;
+	private final transient Spec input, output;
+
+	public CrushRecipe(String in, String out, float exp, Byproduct... byproducts) {
 		super();
 		this.inputItem = in;
 		this.outputItem = out;
 		this.experience = exp;
+		this.byproducts = byproducts.length == 0 ? null : byproducts;
+		this.input = new Spec(in);
+		this.output = new Spec(out);
 	}
 
-	public void register() {
-		List<ItemStack> inl = string2Stacks(inputItem);
-		List<ItemStack> outl = string2Stacks(outputItem);
+	public void register(CrushHandler.Builder builder) {
+		List<ItemStack> inl = input.toStacks();
+		List<ItemStack> outl = output.toStacks();
 		if (outl.isEmpty())
 			return;
 		outl.forEach(s -> s.setItemDamage(s.getItemDamage() == OreDictionary.WILDCARD_VALUE ? 0 : s.getItemDamage()));
+		List<ItemStack> stacks = Lists.newArrayList();
+		List<Float> chances = Lists.newArrayList();
+		if (byproducts != null)
+			for (Byproduct b : byproducts) {
+				List<ItemStack> l = b.spec.toStacks();
+				if (!l.isEmpty()) {
+					ItemStack s = l.get(0);
+					s.setItemDamage(s.getItemDamage() == OreDictionary.WILDCARD_VALUE ? 0 : s.getItemDamage());
+					stacks.add(s);
+					chances.add(b.chance);
+				}
+			}
+		ItemStack[] bys = stacks.toArray(new ItemStack[stacks.size()]);
+		float[] chs = Floats.toArray(chances);
 		for (ItemStack in : inl)
 			//			for (ItemStack out : outl)
-			CrushHandler.instance().addItemStack(in, outl.get(0), experience);
+			builder.add(in, outl.get(0), experience, bys, chs);
 	}
 
-	private static List<ItemStack> string2Stacks(String s) {
-		int size = parse(s, '#', 1), meta = parse(s, '/', 0);
-		int first = s.length();
-		for (int i = 0; i < s.length(); i++)
-			if (s.charAt(i) == '#' || s.charAt(i) == '/') {
-				first = i;
-				break;
-			}
-		String itemName = s.substring(0, first);
-		Item item = null;
-		if (StringUtils.countMatches(itemName, ":") == 1 && (item = ForgeRegistries.ITEMS.getValue(new ResourceLocation(itemName))) != null)
-			return Collections.singletonList(new ItemStack(item, size, meta));
-		else if (StringUtils.countMatches(s, ":") == 0)
-			return OreDictionary.getOres(itemName).stream().map(stack -> ItemHandlerHelper.copyStackWithSize(stack, size)).collect(Collectors.toList());
-		else
-			throw new RuntimeException("Invalid pulvus Recipes: " + s);
+	public static class Byproduct {
+		final String item;
+		final float chance;
+		private final transient Spec spec;
+
+		public Byproduct(String item, float chance) {
+			if (!(chance > 0f && chance <= 1f))
+				throw new IllegalArgumentException("Byproduct chance must be in (0, 1]: " + item);
+			this.item = item;
+			this.chance = chance;
+			this.spec = new Spec(item);
+		}
 	}
 
-	private static int parse(String s, char c, int defaultVal) {
-		int in = s.indexOf(c);
-		if (in != -1) {
-			for (int i = Math.min(in + 4, s.length()); i >= in; i--) {
-				String k = s.substring(in + 1, i);
-				try {
-					return Integer.parseInt(k);
-				} catch (NumberFormatException e) {
-				}
-			}
+	public static void registerAll(CrushHandler.Builder builder, List<CrushRecipe> recipes) {
+		for (CrushRecipe r : recipes)
+			r.register(builder);
+		registerDefaultOreRecipes(builder);
+	}
+
+	private static class Spec {
+		final String source, name;
+		final int meta, amount;
+
+		Spec(String s) {
+			if (s == null)
+				throw new IllegalArgumentException("Missing item in pulvus recipe");
+			source = s;
+			int first = StringUtils.indexOfAny(s, '#', '/');
+			name = first == -1 ? s : s.substring(0, first);
+			if (name.isEmpty() || StringUtils.countMatches(name, ":") > 1)
+				throw new IllegalArgumentException("Invalid pulvus recipe item: " + s);
+			meta = find(META, s, 0);
+			amount = find(AMOUNT, s, 1);
+		}
+
+		private static int find(Pattern pattern, String s, int defaultVal) {
+			Matcher m = pattern.matcher(s);
+			return m.find() ? Integer.parseInt(m.group(1)) : defaultVal;
+		}
+
+		List<ItemStack> toStacks() {
+			if (name.indexOf(':') == -1)
+				return OreDictionary.getOres(name, false).stream().map(stack -> ItemHandlerHelper.copyStackWithSize(stack, amount)).collect(Collectors.toList());
+			Item item = ForgeRegistries.ITEMS.getValue(new ResourceLocation(name));
+			if (item == null)
+				throw new IllegalArgumentException("Invalid pulvus Recipes: " + source);
+			return Collections.singletonList(new ItemStack(item, amount, meta));
 		}
-		return defaultVal;
 	}
 
 	public static List<CrushRecipe> getDefaultRecipes() {
 		List<CrushRecipe> lis = Lists.newArrayList();
 		lis.add(new CrushRecipe("cobblestone", "gravel", .1f));
-		lis.add(new CrushRecipe("gravel", "sand", .1f));
+		lis.add(new CrushRecipe("gravel", "sand", .1f, new Byproduct("minecraft:flint", .1f)));
 		lis.add(new CrushRecipe("stone", "cobblestone", .1f));
 		lis.add(new CrushRecipe("minecraft:sandstone/-1", "minecraft:sand#4", .1f));
 		lis.add(new CrushRecipe("minecraft:stonebrick/-1", "cobblestone", .1f));
@@ -93,17 +154,37 @@ public class CrushRecipe {
 		return lis;
 	}
 
-	public static void registerDefaultOreRecipes() {
+	private static final int CACHE_VERSION = 1;
+
+	public static void registerDefaultOreRecipes(CrushHandler.Builder builder) {
+		File file = new File(ModConfig.config.getConfigFile().getParentFile(), Furnus.MODID + "_recipes.dat");
+		String hash = defaultRecipesHash();
+		NBTTagList list = readCache(file, hash);
+		if (list == null) {
+			list = generateDefaultOreRecipes();
+			writeCache(file, hash, list);
+		}
+		for (int i = 0; i < list.tagCount(); i++) {
+			NBTTagCompound tag = list.getCompoundTagAt(i);
+			builder.add(new ItemStack(tag.getCompoundTag("in")), new ItemStack(tag.getCompoundTag("out")), tag.getFloat("xp"));
+		}
+	}
+
+	private static NBTTagList generateDefaultOreRecipes() {
+		NBTTagList list = new NBTTagList();
+		Set<String> blacks = Sets.newHashSet(ModConfig.blacklistDusts);
 		for (String ore : OreDictionary.getOreNames()) {
-			add(ore, "ore", "dust", 2, .5f);
-			add(ore, "ore", "gem", 3, .5f);
-			add(ore, "ingot", "dust", 1, .1f);
+			if (ore.startsWith("ore")) {
+				add(list, blacks, ore, "ore", "dust", 2, .5f);
+				add(list, blacks, ore, "ore", "gem", 3, .5f);
+			} else if (ore.startsWith("ingot"))
+				add(list, blacks, ore, "ingot", "dust", 1, .1f);
 		}
+		InventoryCrafting ic = new InventoryCrafting(new ContainerNull(), 3, 3);
 		for (Item item : ForgeRegistries.ITEMS) {
 			if (item.getRegistryName().getResourcePath().contains("flower")) {
 				for (int i = 0; i < 16; i++) {
 					ItemStack s = new ItemStack(item, 1, i);
-					InventoryCrafting ic = new InventoryCrafting(new ContainerNull(), 3, 3);
 					ic.setInventorySlotContents(0, s);
 					ItemStack result = ItemStack.EMPTY;
 					try {
@@ -111,23 +192,77 @@ public class CrushRecipe {
 					} catch (Exception e) {
 					}
 					if (!result.isEmpty() && result.getCount() == 1) {
-						CrushHandler.instance().addItemStack(s, ItemHandlerHelper.copyStackWithSize(result, 3), .1f);
+						list.appendTag(toNBT(s, ItemHandlerHelper.copyStackWithSize(result, 3), .1f));
 					}
 					if (!item.getHasSubtypes())
 						break;
 				}
 			}
 		}
+		return list;
 	}
 
-	private static void add(String ore, String in, String out, int amount, float exp) {
-		List<String> blacks = Lists.newArrayList(ModConfig.blacklistDusts);
+	private static void add(NBTTagList list, Set<String> blacks, String ore, String in, String out, int amount, float exp) {
 		if (ore.length() <= in.length())
 			return;
-		String mat = ore.substring(in.length());
-		List<ItemStack> outs = OreDictionary.getOres(out + mat);
-		if (ore.startsWith(in) && !outs.isEmpty() && !blacks.contains(out + mat))
-			for (ItemStack stack : OreDictionary.getOres(ore))
-				CrushHandler.instance().addItemStack(stack, ItemHandlerHelper.copyStackWithSize(outs.get(0), amount), exp);
+		String name = out + ore.substring(in.length());
+		if (blacks.contains(name))
+			return;
+		List<ItemStack> outs = OreDictionary.getOres(name, false);
+		if (!outs.isEmpty())
+			for (ItemStack stack : OreDictionary.getOres(ore, false))
+				list.appendTag(toNBT(stack, ItemHandlerHelper.copyStackWithSize(outs.get(0), amount), exp));
+	}
+
+	private static NBTTagCompound toNBT(ItemStack in, ItemStack out, float exp) {
+		NBTTagCompound tag = new NBTTagCompound();
+		tag.setTag("in", in.writeToNBT(new NBTTagCompound()));
+		tag.setTag("out", out.writeToNBT(new NBTTagCompound()));
+		tag.setFloat("xp", exp);
+		return tag;
+	}
+
+	private static String defaultRecipesHash() {
+		Hasher hasher = Hashing.murmur3_128().newHasher();
+		hasher.putInt(CACHE_VERSION);
+		for (ModContainer mod : Loader.instance().getActiveModList())
+			hasher.putString(mod.getModId(), StandardCharsets.UTF_8).putString(mod.getVersion(), StandardCharsets.UTF_8);
+		for (String black : ModConfig.blacklistDusts)
+			hasher.putString(black, StandardCharsets.UTF_8);
+		for (String ore : OreDictionary.getOreNames()) {
+			hasher.putString(ore, StandardCharsets.UTF_8);
+			for (ItemStack stack : OreDictionary.getOres(ore, false))
+				hasher.putString(stack.getItem().getRegistryName().toString(), StandardCharsets.UTF_8).putInt(stack.getItemDamage());
+		}
+		for (IRecipe recipe : ForgeRegistries.RECIPES) {
+			ItemStack out = recipe.getRecipeOutput();
+			hasher.putString(recipe.getRegistryName().toString(), StandardCharsets.UTF_8);
+			hasher.putString(out.isEmpty() ? "" : out.getItem().getRegistryName().toString(), StandardCharsets.UTF_8).putInt(out.getItemDamage()).putInt(out.getCount());
+		}
+		return hasher.hash().toString();
+	}
+
+	private static NBTTagList readCache(File file, String hash) {
+		if (!file.exists())
+			return null;
+		try (InputStream in = new FileInputStream(file)) {
+			NBTTagCompound nbt = CompressedStreamTools.readCompressed(in);
+			if (hash.equals(nbt.getString("hash")))
+				return nbt.getTagList("recipes", 10);
+		} catch (IOException e) {
+			Furnus.LOGGER.warn("Unable to read " + file.getName() + ", regenerating the pulvus recipes", e);
+		}
+		return null;
+	}
+
+	private static void writeCache(File file, String hash, NBTTagList list) {
+		NBTTagCompound nbt = new NBTTagCompound();
+		nbt.setString("hash", hash);
+		nbt.setTag("recipes", list);
+		try (OutputStream out = new FileOutputStream(file)) {
+			CompressedStreamTools.writeCompressed(nbt, out);
+		} catch (IOException e) {
+			Furnus.LOGGER.warn("Unable to write " + file.getName(), e);
+		}
 	}
 }
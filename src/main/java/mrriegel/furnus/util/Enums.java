@@ -6,15 +6,26 @@ import net.minecraft.util.text.TextFormatting;
 public class Enums {
 	public enum Upgrade {
 		SPEED(8), EFFICIENCY(8), IO(1), SLOT(2), XP(8), ECO(1), ENERGY(1);
+		protected static Upgrade[] vals = values();
+
 		public final int maxStacksize;
 
 		private Upgrade(int maxStacksize) {
 			this.maxStacksize = maxStacksize;
 		}
+
+		public static Upgrade get(int ordinal) {
+			return vals[ordinal];
+		}
+
+		public static int count() {
+			return vals.length;
+		}
 	}
 
 	public enum Direction {
 		BOTTOM, TOP, FRONT, BACK, RIGHT, LEFT;
+		protected static Direction[] vals = values();
 
 		public EnumFacing face;
 
@@ -22,6 +33,28 @@ public class Enums {
 			face = EnumFacing.VALUES[this.ordinal()];
 
 		}
+
+		public static Direction get(int ordinal) {
+			return vals[ordinal];
+		}
+	}
+
+	public enum Channel {
+		IN("in"), OUT("out"), FUEL("fuel");
+		protected static Channel[] vals = values();
+
+		public final String key;
+
+		private Channel(String key) {
+			this.key = key;
+		}
+
+		public static Channel byKey(String key) {
+			for (Channel c : vals)
+				if (c.key.equals(key))
+					return c;
+			return null;
+		}
 	}
 
 	public enum Mode {
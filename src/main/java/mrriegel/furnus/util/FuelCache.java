@@ -0,0 +1,44 @@
+package mrriegel.furnus.util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.tileentity.TileEntityFurnace;
+
+/** Burn times by item and metadata, 0 is cached for non-fuels. Stacks with NBT are never cached. */
+public class FuelCache {
+
+	private static final Map<Item, Integer> plain = new ConcurrentHashMap<>();
+	private static final Map<Item, Map<Integer, Integer>> subtypes = new ConcurrentHashMap<>();
+
+	public static int getBurnTime(ItemStack stack) {
+		if (stack.isEmpty())
+			return 0;
+		if (stack.hasTagCompound())
+			return TileEntityFurnace.getItemBurnTime(stack);
+		Item item = stack.getItem();
+		if (!item.getHasSubtypes()) {
+			Integer burn = plain.get(item);
+			if (burn == null)
+				plain.put(item, burn = TileEntityFurnace.getItemBurnTime(stack));
+			return burn;
+		}
+		Map<Integer, Integer> metas = subtypes.computeIfAbsent(item, i -> new ConcurrentHashMap<>());
+		Integer burn = metas.get(stack.getItemDamage());
+		if (burn == null)
+			metas.put(stack.getItemDamage(), burn = TileEntityFurnace.getItemBurnTime(stack));
+		return burn;
+	}
+
+	public static boolean isFuel(ItemStack stack) {
+		return getBurnTime(stack) > 0;
+	}
+
+	public static void invalidate() {
+		plain.clear();
+		subtypes.clear();
+	}
+
+}
@@ -36,7 +36,7 @@ public class FurnusJEIPlugin implements IModPlugin {
 		registry.addRecipeCatalyst(new ItemStack(ModBlocks.furnus), VanillaRecipeCategoryUid.SMELTING);
 		registry.addRecipeCatalyst(new ItemStack(ModBlocks.pulvus), Furnus.MODID + ".pulvus");
 		registry.handleRecipes(Wrapper.class, r -> r, Furnus.MODID + ".pulvus");
-		List<Wrapper> lis = CrushHandler.instance().crushingList.entrySet().stream().map(e -> new Wrapper(e.getKey(), e.getValue())).collect(Collectors.toList());
+		List<Wrapper> lis = CrushHandler.instance().getRecipes().stream().map(Wrapper::new).collect(Collectors.toList());
 		lis.sort((o1, o2) -> {
 			Ingredients ing1 = new Ingredients();
 			o1.getIngredients(ing1);
@@ -103,16 +103,15 @@ public class FurnusJEIPlugin implements IModPlugin {
 
 	private static class Wrapper extends SmeltingRecipe {
 
-		ItemStack output;
+		float experience;
 
-		public Wrapper(ItemStack input, ItemStack output) {
-			super(Lists.newArrayList(input), output);
-			this.output = output;
+		public Wrapper(CrushHandler.Recipe recipe) {
+			super(Lists.newArrayList(recipe.getInput()), recipe.getOutput());
+			this.experience = recipe.getExperience();
 		}
 
 		@Override
 		public void drawInfo(Minecraft minecraft, int recipeWidth, int recipeHeight, int mouseX, int mouseY) {
-			float experience = CrushHandler.instance().getExperience(output);
 			minecraft.fontRenderer.drawString(experience + " XP", -12, 5, Color.gray.getRGB());
 		}
 
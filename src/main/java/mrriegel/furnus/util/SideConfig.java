@@ -0,0 +1,67 @@
+package mrriegel.furnus.util;
+
+import java.util.Map;
+
+import mrriegel.furnus.util.Enums.Channel;
+import mrriegel.furnus.util.Enums.Direction;
+import mrriegel.furnus.util.Enums.Mode;
+import mrriegel.limelib.helper.NBTHelper;
+import net.minecraft.nbt.NBTTagCompound;
+
+public class SideConfig {
+
+	private static final int BITS = 2, MASK = (1 << BITS) - 1;
+	private static final Direction[] directions = Direction.values();
+
+	private long modes;
+
+	public SideConfig() {
+		for (Channel c : Channel.vals)
+			for (Direction d : directions)
+				set(c, d, Mode.DISABLED);
+	}
+
+	private static int shift(Channel channel, Direction dir) {
+		return (channel.ordinal() * directions.length + dir.ordinal()) * BITS;
+	}
+
+	public Mode get(Channel channel, Direction dir) {
+		return Mode.vals[(int) (modes >>> shift(channel, dir)) & MASK];
+	}
+
+	public void set(Channel channel, Direction dir, Mode mode) {
+		int shift = shift(channel, dir);
+		modes = (modes & ~((long) MASK << shift)) | ((long) mode.ordinal() << shift);
+	}
+
+	public boolean isEnabled(Channel channel, Direction dir) {
+		return get(channel, dir) != Mode.DISABLED;
+	}
+
+	public boolean isAuto(Channel channel, Direction dir) {
+		return get(channel, dir) == Mode.AUTO;
+	}
+
+	public void cycle(Channel channel, Direction dir) {
+		set(channel, dir, get(channel, dir).next());
+	}
+
+	public long getPacked() {
+		return modes;
+	}
+
+	public void setPacked(long modes) {
+		this.modes = modes;
+	}
+
+	public void readLegacyNBT(NBTTagCompound compound) {
+		for (Channel c : Channel.vals) {
+			Map<Direction, Mode> map = NBTHelper.getMap(compound, c.key + "map", Direction.class, Mode.class);
+			for (Direction d : directions) {
+				Mode m = map.get(d);
+				set(c, d, m != null ? m : Mode.DISABLED);
+			}
+		}
+	}
+
+}
@@ -1,13 +1,49 @@
 package mrriegel.furnus.util;
 
+import java.util.Arrays;
+
+import mrriegel.furnus.init.ModConfig;
 import mrriegel.furnus.tile.TileDevice;
+import mrriegel.furnus.util.Enums.Upgrade;
 
+/** Immutable machine stats derived from the installed upgrades and the config they were built with. */
 public class UpgradeSet {
 
-	TileDevice val;
+	private final int[] amounts;
+	private final int configVersion;
+	/** Work units of one operation and work units gained per tick, see {@link TileDevice#WORK_PER_TICK}. */
+	public final int work, step;
+	public final double speed, neededTicks, fuelMultiplier, fuelPerTick, xpMultiplier;
+	/** Input slots in use, each with its own output slot. */
+	public final int lanes;
+	public final int ioBatch, ioFuelBatch;
+
+	public UpgradeSet(int operationTicks, int[] amounts) {
+		this.amounts = amounts.clone();
+		this.configVersion = ModConfig.version;
+		speed = 1. + getAmount(Upgrade.SPEED) * ModConfig.speedMultiplier;
+		work = operationTicks * TileDevice.WORK_PER_TICK;
+		step = (int) Math.round(TileDevice.WORK_PER_TICK * speed);
+		neededTicks = work / (double) step;
+		fuelMultiplier = (1. + getAmount(Upgrade.SPEED) * ModConfig.speedFuelMultiplier) * (1. / (1. + getAmount(Upgrade.EFFICIENCY) * ModConfig.effiFuelMultiplier));
+		fuelPerTick = fuelMultiplier * 200. * step / work;
+		xpMultiplier = 1. + getAmount(Upgrade.XP) * 1.5;
+		lanes = Math.min(1 + getAmount(Upgrade.SLOT), 3);
+		ioBatch = ModConfig.ioStackSize * lanes;
+		ioFuelBatch = ModConfig.ioFuelStackSize;
+	}
+
+	public int getAmount(Upgrade upgrade) {
+		return amounts[upgrade.ordinal()];
+	}
+
+	public boolean isCurrent() {
+		return configVersion == ModConfig.version;
+	}
 
-	public UpgradeSet(TileDevice val) {
-		this.val = val;
+	/** Whether this profile still describes these upgrade counts under the current config. */
+	public boolean matches(int[] amounts) {
+		return isCurrent() && Arrays.equals(this.amounts, amounts);
 	}
 
 }